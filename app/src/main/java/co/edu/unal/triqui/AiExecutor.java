@@ -0,0 +1,121 @@
+package co.edu.unal.triqui;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the computer's move search on a background worker and delivers the
+ * result on the main thread. Only one request is in flight at a time; a
+ * new request or {@link #cancel()} interrupts the previous search and drops
+ * its result.
+ */
+class AiExecutor {
+    interface Callback {
+        void onMoveReady(int cell);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ExecutorService worker;
+    private Future<?> pending;
+
+    /* Solo se modifica y se lee en el hilo principal */
+    private int generation;
+
+    /**
+     * Starts {@code search} in the background. The callback runs on the main
+     * thread no sooner than {@code minDelayMillis} after this call, so fast
+     * engines can still "think" for a moment; a delay of zero posts the move
+     * as soon as it is found.
+     */
+    void requestMove(final Callable<Integer> search, final long minDelayMillis, final Callback callback) {
+        cancel();
+
+        final int requestGeneration = generation;
+        final long start = SystemClock.uptimeMillis();
+
+        pending = worker().submit(new Runnable() {
+            public void run() {
+                final int cell;
+                try {
+                    cell = search.call();
+                } catch (final Exception e) {
+                    // Una busqueda cancelada (nueva jugada, cierre del tablero) puede fallar: no es un error
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    mainHandler.post(new Runnable() {
+                        public void run() {
+                            // cancel() pudo llegar despues del chequeo y antes de este post
+                            if (requestGeneration != generation) {
+                                return;
+                            }
+                            throw new IllegalStateException("AI search failed", e);
+                        }
+                    });
+                    return;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                long elapsed = SystemClock.uptimeMillis() - start;
+                mainHandler.postDelayed(new Runnable() {
+                    public void run() {
+                        if (requestGeneration != generation) {
+                            return;
+                        }
+                        pending = null;
+                        callback.onMoveReady(cell);
+                    }
+                }, Math.max(0, minDelayMillis - elapsed));
+            }
+        });
+    }
+
+    boolean isBusy() {
+        return pending != null;
+    }
+
+    void cancel() {
+        generation++;
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    void shutdown() {
+        cancel();
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
+    }
+
+    private ExecutorService worker() {
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "triqui-ai");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return worker;
+    }
+}
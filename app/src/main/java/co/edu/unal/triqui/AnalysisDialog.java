@@ -0,0 +1,141 @@
+package co.edu.unal.triqui;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+
+import co.edu.unal.triqui.engine.Board;
+import co.edu.unal.triqui.engine.GameAnalyzer;
+
+/**
+ * Shows analysis results as they arrive. A single game lists the grade of
+ * each of the human's moves; a batch keeps a running summary over all the
+ * games analyzed so far. Closing the dialog cancels what is left.
+ */
+class AnalysisDialog implements GameAnalysisRunner.Listener {
+    private final AlertDialog dialog;
+    private final GameAnalysisRunner runner;
+
+    /* Totales de las jugadas del humano en todo el lote */
+    private int best;
+    private int inaccuracies;
+    private int blunders;
+    private int gamesWithLosingMove;
+    private int failed;
+
+    AnalysisDialog(Context context, final GameAnalysisRunner runner) {
+        this.runner = runner;
+        dialog = new AlertDialog.Builder(context)
+                .setTitle("Análisis")
+                .setMessage("Analizando…")
+                .setNeutralButton("Cerrar", new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int id) {
+                        dialog.dismiss();
+                    }
+                })
+                .create();
+        dialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+            public void onDismiss(DialogInterface dialog) {
+                runner.cancel();
+            }
+        });
+    }
+
+    void show() {
+        dialog.show();
+    }
+
+    @Override
+    public void onGameAnalyzed(GameAnalysisRunner.Game game, GameAnalyzer.Analysis analysis, int done, int total) {
+        best += analysis.count(GameAnalyzer.BEST, Board.FIRST);
+        inaccuracies += analysis.count(GameAnalyzer.INACCURACY, Board.FIRST);
+        blunders += analysis.count(GameAnalyzer.BLUNDER, Board.FIRST);
+        boolean humanLost = analysis.firstLosingPly >= 0
+                && analysis.players[analysis.firstLosingPly] == Board.FIRST;
+        if (humanLost) {
+            gamesWithLosingMove++;
+        }
+
+        if (total == 1) {
+            dialog.setMessage(describeGame(game, analysis));
+        } else {
+            showProgress(done, total);
+        }
+    }
+
+    @Override
+    public void onGameFailed(GameAnalysisRunner.Game game, int done, int total) {
+        failed++;
+        if (total == 1) {
+            dialog.setMessage("No se pudo analizar la partida.");
+        } else {
+            showProgress(done, total);
+        }
+    }
+
+    private void showProgress(int done, int total) {
+        dialog.setMessage("Analizadas " + done + " de " + total + " partidas\n\n" + summary()
+                + "\nPartidas con una jugada perdedora tuya: " + gamesWithLosingMove
+                + (failed > 0 ? "\nNo se pudieron analizar: " + failed : ""));
+    }
+
+    @Override
+    public void onBatchFinished(int total) {
+        if (total == 0) {
+            dialog.setMessage("No hay partidas terminadas para analizar.");
+        } else if (total > 1) {
+            dialog.setTitle("Análisis de " + total + " partidas");
+        }
+    }
+
+    private String summary() {
+        int moves = best + inaccuracies + blunders;
+        return "Tus jugadas: " + moves
+                + "\nMejores: " + best + percent(best, moves)
+                + "\nImprecisiones: " + inaccuracies + percent(inaccuracies, moves)
+                + "\nErrores graves: " + blunders + percent(blunders, moves);
+    }
+
+    private static String describeGame(GameAnalysisRunner.Game game, GameAnalyzer.Analysis analysis) {
+        StringBuilder report = new StringBuilder();
+        for (int ply = 0; ply < analysis.size(); ply++) {
+            if (analysis.players[ply] != Board.FIRST) {
+                continue;
+            }
+            int cell = analysis.cells[ply];
+            report.append("Jugada ").append(ply / 2 + 1)
+                    .append(" (fila ").append(cell / game.width + 1)
+                    .append(", columna ").append(cell % game.width + 1).append("): ")
+                    .append(label(analysis.grades[ply])).append('\n');
+        }
+
+        report.append('\n');
+        int losing = analysis.firstLosingPly;
+        if (losing < 0) {
+            report.append("Nadie cometió una jugada perdedora.");
+        } else if (analysis.players[losing] == Board.FIRST) {
+            report.append("Tu primera jugada perdedora fue la ").append(losing / 2 + 1).append('.');
+        } else {
+            report.append("El computador se equivocó primero, en su jugada ").append(losing / 2 + 1).append('.');
+        }
+        if (!analysis.exact) {
+            report.append("\n\nValores estimados con MCTS: en tableros grandes no son exactos.");
+        }
+        return report.toString();
+    }
+
+    private static String label(int grade) {
+        switch (grade) {
+            case GameAnalyzer.BEST:
+                return "la mejor";
+            case GameAnalyzer.INACCURACY:
+                return "imprecisión";
+            default:
+                return "error grave";
+        }
+    }
+
+    private static String percent(int part, int total) {
+        return total == 0 ? "" : " (" + (100 * part / total) + "%)";
+    }
+}
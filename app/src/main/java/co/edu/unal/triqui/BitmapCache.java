@@ -0,0 +1,118 @@
+package co.edu.unal.triqui;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Process-wide cache of piece bitmaps decoded at the size they are drawn.
+ * Living in a static field, it survives activity recreation, so a rotation
+ * reuses the decoded pieces instead of decoding the full-size PNGs again.
+ * {@link #load} decodes on a background thread, so the main thread never
+ * waits on a PNG.
+ */
+final class BitmapCache {
+    /* Un octavo de la memoria de la app, en KB */
+    private static final LruCache<Long, Bitmap> cache =
+            new LruCache<Long, Bitmap>((int) (Runtime.getRuntime().maxMemory() / 1024 / 8)) {
+                @Override
+                protected int sizeOf(Long key, Bitmap bitmap) {
+                    return bitmap.getByteCount() / 1024;
+                }
+            };
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static ExecutorService decoder;
+
+    private BitmapCache() {
+    }
+
+    /** Returns {@code resId} decoded and scaled to exactly {@code width} x {@code height}. */
+    static Bitmap get(Resources resources, int resId, int width, int height) {
+        Long key = key(resId, width, height);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            bitmap = decode(resources, resId, width, height);
+            cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /** Returns {@code resId} at that size if it is already decoded, or null. */
+    static Bitmap peek(int resId, int width, int height) {
+        return cache.get(key(resId, width, height));
+    }
+
+    /**
+     * Decodes {@code resIds} at that size in the background, then runs
+     * {@code onLoaded} on the main thread to pick them up with {@link #peek}.
+     */
+    static void load(final Resources resources, final int[] resIds, final int width, final int height,
+                     final Runnable onLoaded) {
+        decoder().execute(new Runnable() {
+            public void run() {
+                for (int resId : resIds) {
+                    get(resources, resId, width, height);
+                }
+                mainHandler.post(onLoaded);
+            }
+        });
+    }
+
+    static void clear() {
+        cache.evictAll();
+    }
+
+    private static Long key(int resId, int width, int height) {
+        return ((long) resId << 32) | ((long) (width & 0xFFFF) << 16) | (height & 0xFFFF);
+    }
+
+    private static synchronized ExecutorService decoder() {
+        if (decoder == null) {
+            decoder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "triqui-bitmaps");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return decoder;
+    }
+
+    private static Bitmap decode(Resources resources, int resId, int width, int height) {
+        // Read only the dimensions first to pick the sample size
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        Bitmap sampled = BitmapFactory.decodeResource(resources, resId, options);
+
+        if (sampled.getWidth() == width && sampled.getHeight() == height) {
+            return sampled;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(sampled, width, height, true);
+        if (scaled != sampled) {
+            sampled.recycle();
+        }
+        return scaled;
+    }
+
+    /** Largest power of two that keeps the decoded image at least as big as requested. */
+    private static int sampleSize(int sourceWidth, int sourceHeight, int width, int height) {
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= width && sourceHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -0,0 +1,13 @@
+package co.edu.unal.triqui;
+
+/**
+ * Receives board changes from {@link GameBoard} when drawing is done
+ * somewhere other than the view itself. Calls arrive on the main thread.
+ */
+interface BoardRenderer {
+    void onBoardReset(int width, int height, int[] cells, int lineStart, int lineEnd);
+
+    void onPiecePlaced(int cell, int player);
+
+    void onGameWon(int lineStart, int lineEnd);
+}
@@ -0,0 +1,149 @@
+package co.edu.unal.triqui;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import co.edu.unal.triqui.engine.GameAnalyzer;
+import co.edu.unal.triqui.engine.MoveLog;
+
+/**
+ * Analyzes batches of finished games on a pool with one worker per core.
+ * Each game is delivered to the listener on the main thread as soon as it
+ * is done, in completion order, so the UI can show progress while the rest
+ * of the batch runs. Starting a new batch or {@link #cancel()} drops the
+ * remaining games of the previous one.
+ */
+class GameAnalysisRunner {
+    interface Listener {
+        void onGameAnalyzed(Game game, GameAnalyzer.Analysis analysis, int done, int total);
+
+        /** The analysis of {@code game} threw; it still counts toward {@code done}. */
+        void onGameFailed(Game game, int done, int total);
+
+        void onBatchFinished(int total);
+    }
+
+    /** A finished game to analyze; the move log is owned by the runner once submitted. */
+    static final class Game {
+        final int width;
+        final int height;
+        final int winLength;
+        final MoveLog moves;
+
+        Game(int width, int height, int winLength, MoveLog moves) {
+            this.width = width;
+            this.height = height;
+            this.winLength = winLength;
+            this.moves = moves;
+        }
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Future<?>> pending = new ArrayList<>();
+    private ExecutorService pool;
+
+    /* Solo se modifica y se lee en el hilo principal */
+    private int generation;
+    private int done;
+
+    GameAnalysisRunner(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    void analyze(final List<Game> games, final Listener listener) {
+        cancel();
+        final int batch = generation;
+        done = 0;
+
+        if (games.isEmpty()) {
+            listener.onBatchFinished(0);
+            return;
+        }
+
+        for (final Game game : games) {
+            pending.add(pool().submit(new Runnable() {
+                public void run() {
+                    GameAnalyzer.Analysis result;
+                    try {
+                        GameAnalyzer analyzer = new GameAnalyzer(GameBoard.getSolvedTable(context),
+                                GameAnalyzer.DEFAULT_BUDGET_MILLIS);
+                        result = analyzer.analyze(game.width, game.height, game.winLength, game.moves);
+                    } catch (RuntimeException e) {
+                        // Una partida que falla cuenta igual: si no, el lote nunca terminaria
+                        result = null;
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+
+                    final GameAnalyzer.Analysis analysis = result;
+                    mainHandler.post(new Runnable() {
+                        public void run() {
+                            if (batch != generation) {
+                                return;
+                            }
+                            done++;
+                            if (analysis != null) {
+                                listener.onGameAnalyzed(game, analysis, done, games.size());
+                            } else {
+                                listener.onGameFailed(game, done, games.size());
+                            }
+                            if (done == games.size()) {
+                                pending.clear();
+                                listener.onBatchFinished(games.size());
+                            }
+                        }
+                    });
+                }
+            }));
+        }
+    }
+
+    void cancel() {
+        generation++;
+        for (Future<?> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    void shutdown() {
+        cancel();
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    private ExecutorService pool() {
+        if (pool == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+            pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private final AtomicInteger created = new AtomicInteger();
+
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "triqui-analysis-" + created.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return pool;
+    }
+}
@@ -4,28 +4,87 @@ import android.annotation.SuppressLint;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
+import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
-import android.media.MediaPlayer;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
 import java.util.Random;
+import java.util.concurrent.Callable;
+
+import co.edu.unal.triqui.engine.Board;
+import co.edu.unal.triqui.engine.ComputerPlayer;
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.EndgameSolver;
+import co.edu.unal.triqui.engine.MnkBoard;
+import co.edu.unal.triqui.engine.MoveLog;
+import co.edu.unal.triqui.engine.OpeningBook;
+import co.edu.unal.triqui.engine.PositionCache;
+import co.edu.unal.triqui.engine.SolvedTable;
+import co.edu.unal.triqui.net.GameClient;
+import co.edu.unal.triqui.net.Protocol;
 
 public class GameBoard extends View {
+    private static final String SOLVED_TABLE_ASSET = "solved_positions.bin";
+    private static SolvedTable solvedTable;
+    private static final String OPENING_BOOK_ASSET = "opening_book.bin";
+    private static OpeningBook openingBook;
+    private static boolean openingBookMissing;
+    private static final int[] PIECES = {R.drawable.player1, R.drawable.player2};
+    private static final long WARM_UP_MCTS_MILLIS = 20;
+    /* El motor se precalienta una vez por proceso */
+    private static boolean warmUpStarted;
+    private static volatile boolean soundsReady;
+
     private Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private Random genericRandom;
-    private Bitmap player1Bitmap;
-    private Bitmap player2Bitmap;
-    private MediaPlayer player1Player;
-    private MediaPlayer player2Player;
+    /* Capa de depuracion con las metricas de rendimiento */
+    private boolean metricsOverlay;
+    private Paint metricsPaint;
+    /* Momento del toque del humano, para medir hasta la respuesta del computador */
+    private long touchedAt;
+    private ComputerPlayer computerPlayer;
+    private AiExecutor aiExecutor;
+    private Ponderer ponderer;
+    private boolean ponderingEnabled = true;
+    private long thinkDelay = 1000;
+
+    /* Geometria y fichas escaladas, calculadas una vez por tamaño de vista y de tablero */
+    private Rect[] cellRects = new Rect[0];
+    private float[] gridLines = new float[0];
+    private Bitmap player1Scaled;
+    private Bitmap player2Scaled;
+    /* Tamaño de la ultima carga de fichas; mientras se decodifican las fichas son null */
+    private int pieceWidth;
+    private int pieceHeight;
+
+    /* Si hay un renderizador externo, esta vista solo atiende los toques */
+    private BoardRenderer renderer;
+    private SoundEffects soundEffects;
+    private GameStatsStore statsStore;
+    private GameJournal journal;
+    private GameAnalysisRunner analysisRunner;
+    /* Partida en red: el rival remoto ocupa el lugar del computador */
+    private GameClient networkClient;
+    private int networkSession;
+    /* Ficha de quien juega en este dispositivo; null mientras se espera rival */
+    private BoardStatus localPlayer = BoardStatus.FIRST;
+    /* Momento de la primera jugada, para la duracion de la partida */
+    private long gameStartedAt;
     private Context activity;
     private int humanWin;
     private int computerWin;
@@ -48,17 +107,9 @@ public class GameBoard extends View {
         UNFINISHED
     }
 
-    public enum DifficultyLevel {
-        Easy,
-        Harder,
-        Expert
-    };
-
-    BoardStatus[][] board = new BoardStatus[][] {
-            { BoardStatus.FREE, BoardStatus.FREE, BoardStatus.FREE},
-            { BoardStatus.FREE, BoardStatus.FREE, BoardStatus.FREE},
-            { BoardStatus.FREE, BoardStatus.FREE, BoardStatus.FREE}
-    };
+    MnkBoard board = new MnkBoard(Board.SIZE, Board.SIZE, Board.SIZE);
+    /* Historial de la partida para deshacer y rehacer */
+    private final MoveLog moveLog = new MoveLog();
 
     BoardStatus currentPlayer = BoardStatus.FIRST;
     private DifficultyLevel currentDifficulty = DifficultyLevel.Easy;
@@ -85,20 +136,43 @@ public class GameBoard extends View {
         paint.setColor(Color.BLACK);
         paint.setStrokeWidth(10);
 
-        genericRandom = new Random();
-
-        player1Bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.player1);
-        player2Bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.player2);
+        computerPlayer = new ComputerPlayer(new Random());
+        computerPlayer.setEndgameSolver(EndgameSolver.newShared());
+        aiExecutor = new AiExecutor();
+        ponderer = new Ponderer(getContext());
     }
 
     public void onResumeMainActivity(Context context) {
-        player1Player = MediaPlayer.create(context, R.raw.player1);
-        player2Player = MediaPlayer.create(context, R.raw.player2);
+        SoundEffects sounds = soundEffects();
+        if(sounds != null){
+            long start = System.nanoTime();
+            sounds.resume();
+            Metrics.get().mediaSetup.record(System.nanoTime() - start);
+        }
+
+        // Resume a computer turn interrupted by a pause or a rotation
+        playComputerTurn();
+        startPondering();
     }
 
     public void onPauseMainActivity() {
-        player1Player.release();
-        player2Player.release();
+        aiExecutor.cancel();
+        ponderer.cancel();
+        if(soundEffects != null){
+            soundEffects.pause();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        aiExecutor.shutdown();
+        ponderer.shutdown();
+        computerPlayer.shutdown();
+        if(networkClient != null){
+            networkClient.close();
+            networkClient = null;
+        }
     }
 
     public int getHumanWin() {
@@ -133,6 +207,63 @@ public class GameBoard extends View {
         currentDifficulty = difficultyLevel;
     }
 
+    public BoardStatus getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public void setCurrentPlayer(BoardStatus currentPlayer) {
+        this.currentPlayer = currentPlayer;
+    }
+
+    public void setRenderer(BoardRenderer renderer) {
+        this.renderer = renderer;
+        notifyRendererReset();
+        invalidate();
+    }
+
+    private void notifyRendererReset() {
+        if(renderer != null){
+            renderer.onBoardReset(board.getWidth(), board.getHeight(), board.getCells(),
+                    board.getWinningLineStart(), board.getWinningLineEnd());
+        }
+    }
+
+    public void setPondering(boolean ponderingEnabled) {
+        this.ponderingEnabled = ponderingEnabled;
+        if(ponderingEnabled){
+            startPondering();
+        }
+        else {
+            ponderer.cancel();
+        }
+    }
+
+    public void setMetricsOverlay(boolean metricsOverlay) {
+        this.metricsOverlay = metricsOverlay;
+        if(metricsOverlay && metricsPaint == null){
+            metricsPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            metricsPaint.setColor(Color.RED);
+            metricsPaint.setTextSize(12 * getResources().getDisplayMetrics().density);
+        }
+        invalidate();
+    }
+
+    public void setStatsStore(GameStatsStore statsStore) {
+        this.statsStore = statsStore;
+    }
+
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    public void setAnalysisRunner(GameAnalysisRunner analysisRunner) {
+        this.analysisRunner = analysisRunner;
+    }
+
+    public void setThinkDelay(long thinkDelay) {
+        this.thinkDelay = Math.max(0, thinkDelay);
+    }
+
     public void setSound(Boolean soundEnabled) {
         this.soundEnabled = soundEnabled;
     }
@@ -141,133 +272,378 @@ public class GameBoard extends View {
         this.victoryMessage = victoryMessage;
     }
 
+    public int getBoardWidth() {
+        return board.getWidth();
+    }
+
+    public int getBoardHeight() {
+        return board.getHeight();
+    }
+
+    public int getWinLength() {
+        return board.getWinLength();
+    }
+
+    public void setBoardSize(int width, int height, int winLength) {
+        if(width == board.getWidth() && height == board.getHeight()
+                && winLength == board.getWinLength()){
+            return;
+        }
+        aiExecutor.cancel();
+        abandonJournaledGame();
+        board = new MnkBoard(width, height, winLength);
+        moveLog.clear();
+        currentPlayer = BoardStatus.FIRST;
+        updateGeometry();
+        notifyRendererReset();
+        invalidate();
+        requestNetworkMatch();
+        startPondering();
+    }
+
     @Override
-    public void onDraw(Canvas canvas) {
-        int viewWidth = canvas.getWidth();
-        int viewHeight = canvas.getHeight();
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        updateGeometry();
+    }
+
+    private void updateGeometry(){
+        int viewWidth = getWidth();
+        int viewHeight = getHeight();
+        int columns = board.getWidth();
+        int rows = board.getHeight();
+        int boxWidth = viewWidth / columns;
+        int boxHeight = viewHeight / rows;
+        if(boxWidth <= 0 || boxHeight <= 0){
+            return;
+        }
+
+        cellRects = new Rect[board.getCellCount()];
+        for(int row = 0; row < rows; row++){
+            for(int column = 0; column < columns; column++){
+                cellRects[board.cellOf(row, column)] = new Rect(boxWidth * column, boxHeight * row,
+                        boxWidth * (column + 1), boxHeight * (row + 1));
+            }
+        }
+
+        // x0, y0, x1, y1 for each inner line, in the layout drawLines() expects
+        gridLines = new float[4 * (columns - 1 + rows - 1)];
+        int index = 0;
+        for(int line = 1; line < columns; line++){
+            int linePositionX = boxWidth * line;
+            gridLines[index++] = linePositionX;
+            gridLines[index++] = 0;
+            gridLines[index++] = linePositionX;
+            gridLines[index++] = viewHeight;
+        }
+        for(int line = 1; line < rows; line++){
+            int linePositionY = boxHeight * line;
+            gridLines[index++] = 0;
+            gridLines[index++] = linePositionY;
+            gridLines[index++] = viewWidth;
+            gridLines[index++] = linePositionY;
+        }
 
-        for(int line = 1; line < 3; line++){
-            int linePositionX = viewWidth/3 * line;
-            int linePositionY = viewHeight/3 * line;
+        loadPieces(boxWidth, boxHeight);
+    }
+
+    private void loadPieces(final int boxWidth, final int boxHeight){
+        pieceWidth = boxWidth;
+        pieceHeight = boxHeight;
+        player1Scaled = BitmapCache.peek(R.drawable.player1, boxWidth, boxHeight);
+        player2Scaled = BitmapCache.peek(R.drawable.player2, boxWidth, boxHeight);
+        if(player1Scaled != null && player2Scaled != null){
+            StartupTrace.mark(StartupTrace.PIECES);
+            return;
+        }
+        // La cuadricula se dibuja ya; las fichas cuando terminen de decodificarse
+        BitmapCache.load(getResources(), PIECES, boxWidth, boxHeight, new Runnable() {
+            public void run() {
+                // Si el tamaño cambio entretanto, hay otra carga en camino
+                if(boxWidth == pieceWidth && boxHeight == pieceHeight){
+                    player1Scaled = BitmapCache.peek(R.drawable.player1, boxWidth, boxHeight);
+                    player2Scaled = BitmapCache.peek(R.drawable.player2, boxWidth, boxHeight);
+                    StartupTrace.mark(StartupTrace.PIECES);
+                    invalidate();
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds, off the main thread, what the first moves would otherwise
+     * build on demand: the sound pool, the shared position cache, the
+     * assets for the current board and the engine's classes and tables,
+     * by a short single-threaded search for a throwaway move. Sounds are on
+     * as soon as the pool is ready, before the search. Once per process.
+     */
+    public void warmUp(){
+        if(warmUpStarted){
+            return;
+        }
+        warmUpStarted = true;
+        final Context context = getContext().getApplicationContext();
+        final MnkBoard empty = new MnkBoard(board.getWidth(), board.getHeight(), board.getWinLength());
+        final DifficultyLevel level = currentDifficulty;
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                long start = System.nanoTime();
+                SoundEffects.get(context);
+                Metrics.get().mediaSetup.record(System.nanoTime() - start);
+                soundsReady = true;
+                PositionCache.getShared();
+                getSolvedTable(context);
+                if(ComputerPlayer.usesMcts(empty, level)){
+                    getOpeningBook(context);
+                }
+                // Una busqueda corta carga y verifica las clases del motor y sus tablas estaticas;
+                // con un solo hilo y poco tiempo, para no competir con el arranque
+                ComputerPlayer warmUpPlayer = new ComputerPlayer(new Random());
+                warmUpPlayer.setPositionCache(new PositionCache(16));
+                warmUpPlayer.setMctsBudget(WARM_UP_MCTS_MILLIS, 1);
+                warmUpPlayer.chooseMove(empty, Board.FIRST, DifficultyLevel.Expert);
+                warmUpPlayer.shutdown();
+
+                // No con post(): esta vista puede ya no estar en pantalla si se roto
+                new Handler(Looper.getMainLooper()).post(new Runnable() {
+                    public void run() {
+                        StartupTrace.mark(StartupTrace.ENGINE);
+                    }
+                });
+            }
+        }, "triqui-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-            canvas.drawLine(0, linePositionY, viewWidth, linePositionY, paint);
-            canvas.drawLine(linePositionX, 0, linePositionX, viewHeight, paint);
+    /* Los sonidos se crean en warmUp(); hasta entonces las jugadas son mudas */
+    private SoundEffects soundEffects(){
+        if(soundEffects == null && soundsReady){
+            soundEffects = SoundEffects.get(activity);
         }
+        return soundEffects;
+    }
 
-        for(int row = 1; row <= 3; row++){
-            for(int column = 1; column <= 3; column++){
-                BoardStatus status = board[row-1][column-1];
-                drawTurn(canvas, status, row, column);
+    @Override
+    public void onDraw(Canvas canvas) {
+        StartupTrace.mark(StartupTrace.FIRST_FRAME);
+        if(renderer == null){
+            long start = System.nanoTime();
+            if(cellRects.length != board.getCellCount()){
+                updateGeometry();
+            }
+
+            canvas.drawLines(gridLines, paint);
+
+            for(int cell = 0; cell < cellRects.length; cell++){
+                drawTurn(canvas, board.get(cell), cell);
             }
+            Metrics.get().frame.record(System.nanoTime() - start);
+        }
+        // Al final, para que la rejilla y las fichas no tapen el texto
+        if(metricsOverlay){
+            drawMetrics(canvas);
         }
     }
 
+    private void drawMetrics(Canvas canvas) {
+        float lineHeight = metricsPaint.getTextSize() * 1.2f;
+        float y = lineHeight;
+        for(String line : Metrics.get().summary()){
+            canvas.drawText(line, lineHeight / 2, y, metricsPaint);
+            y += lineHeight;
+        }
+        // Se redibuja solo, despacio, para que las cifras sigan vivas
+        postInvalidateDelayed(500);
+    }
+
     @SuppressLint("ClickableViewAccessibility")
     public boolean onTouchEvent(MotionEvent event ) {
         if (event.getAction() != MotionEvent.ACTION_UP){
             return true;
         }
+        // Ignore taps while the opponent is thinking or the game is over
+        if (localPlayer == null || currentPlayer != localPlayer || validateWin() != GameStatus.UNFINISHED){
+            return true;
+        }
 
         int x = (int)event.getX();
         int y = (int)event.getY();
         int viewWidth = getWidth();
         int viewHeight = getHeight();
+        if(x < 0 || y < 0 || x >= viewWidth || y >= viewHeight){
+            return true;
+        }
 
-        for(int row = 1; row <= 3; row++){
-            int rowLine = viewHeight/3 * row;
-            for(int column = 1; column <= 3; column++){
-                int columnLine = viewWidth/3 * column;
-
-                if(x < columnLine && y < rowLine){
-                    if(board[row-1][column-1] != BoardStatus.FREE){return true;}
+        int column = x * board.getWidth() / viewWidth;
+        int row = y * board.getHeight() / viewHeight;
+        int cell = board.cellOf(row, column);
+        if(!board.isFree(cell)){return true;}
 
-                    playTurn(row, column);
-                    playComputerTurn();
-                    return true;
-                }
-            }
+        playTurn(row + 1, column + 1);
+        if(networkClient != null){
+            networkClient.sendMove(cell);
+        }
+        else {
+            touchedAt = System.nanoTime();
+            playComputerTurn();
         }
-
         return true;
     }
 
     void playTurn(int row, int column){
-        if(board[row-1][column-1] != BoardStatus.FREE){return;}
-        board[row-1][column-1] = currentPlayer;
+        int cell = board.cellOf(row-1, column-1);
+        if(!board.isFree(cell)){return;}
+        board.play(cell, currentPlayer.ordinal());
+        moveLog.record(cell, currentPlayer.ordinal());
+        journalMove(cell, currentPlayer.ordinal());
+        if(board.getMoveCount() == 1){
+            gameStartedAt = SystemClock.elapsedRealtime();
+        }
 
-        if(soundEnabled){
-            if(currentPlayer == BoardStatus.FIRST){
-                player1Player.start();
-            }
-            else {
-                player2Player.start();
-            }
+        SoundEffects sounds = soundEffects();
+        if(soundEnabled && sounds != null){
+            sounds.play(currentPlayer.ordinal());
         }
 
-        invalidate();
+        if(renderer != null){
+            renderer.onPiecePlaced(cell, currentPlayer.ordinal());
+        }
+        else {
+            // Con aceleracion por hardware (API 21+) se redibuja la vista entera aunque se pase un rectangulo
+            invalidate();
+        }
 
         GameStatus status = validateWin();
 
         switch (status){
             case WON:
+                if(renderer != null){
+                    renderer.onGameWon(board.getWinningLineStart(), board.getWinningLineEnd());
+                }
                 String winner;
-                if(currentPlayer == BoardStatus.FIRST){
+                if(currentPlayer == localPlayer){
                     winner = victoryMessage;
-                    humanWin += 1;
+                    recordGame(GameStatsStore.HUMAN_WIN);
                 }
                 else{
-                    winner = "Ups, ha ganado el computador";
-                    computerWin += 1;
+                    winner = networkClient != null ? "Ha ganado tu rival" : "Ups, ha ganado el computador";
+                    recordGame(GameStatsStore.COMPUTER_WIN);
                 }
                 showAlert("Victoria", winner);
                 break;
             case DRAW_GAME:
-                ties += 1;
+                recordGame(GameStatsStore.DRAW);
                 showAlert("Empate", "¡Mejor suerte para la próxima!");
                 break;
             case UNFINISHED:
                 currentPlayer = (currentPlayer == BoardStatus.FIRST) ?
                         BoardStatus.SECOND : BoardStatus.FIRST;
+                startPondering();
                 break;
         }
+    }
 
+    private void recordGame(int outcome){
+        // El marcador, las estadisticas y el diario son de partidas contra el computador
+        if(networkClient != null){
+            return;
+        }
+        switch (outcome){
+            case GameStatsStore.HUMAN_WIN:
+                humanWin += 1;
+                break;
+            case GameStatsStore.COMPUTER_WIN:
+                computerWin += 1;
+                break;
+            default:
+                ties += 1;
+                break;
+        }
         displayScores();
+        if(journal != null){
+            journal.appendEnd(outcome);
+        }
+        if(statsStore == null){
+            return;
+        }
+        long duration = gameStartedAt > 0 ? SystemClock.elapsedRealtime() - gameStartedAt : 0;
+        statsStore.recordGame(currentDifficulty, board.getWidth(), board.getHeight(),
+                board.getWinLength(), duration, board.getMoveCount(), outcome);
     }
 
     void playComputerTurn(){
-        Handler handler = new Handler();
-        handler.postDelayed(new Runnable() {
-            public void run() {
-                GameStatus gameStatus = validateWin();
-                if(gameStatus == GameStatus.UNFINISHED){
-                    Position computerMove = getComputerMove();
-                    playTurn(computerMove.getRow(), computerMove.getColumn());
+        if(networkClient != null || validateWin() != GameStatus.UNFINISHED
+                || currentPlayer != BoardStatus.SECOND){
+            return;
+        }
+
+        final MnkBoard snapshot = new MnkBoard(board);
+        final int player = currentPlayer.ordinal();
+        final DifficultyLevel level = currentDifficulty;
+        final Context context = getContext().getApplicationContext();
+        // Si ya se penso la respuesta a esta jugada no hace falta buscarla
+        final int pondered = ponderer.take(board, level);
+
+        aiExecutor.requestMove(new Callable<Integer>() {
+            public Integer call() {
+                if(pondered >= 0){
+                    return pondered;
+                }
+                if(level == DifficultyLevel.Unbeatable && computerPlayer.getSolvedTable() == null){
+                    computerPlayer.setSolvedTable(getSolvedTable(context));
+                }
+                boolean mcts = ComputerPlayer.usesMcts(snapshot, level);
+                if(mcts && computerPlayer.getOpeningBook() == null){
+                    computerPlayer.setOpeningBook(getOpeningBook(context));
+                }
+                long start = System.nanoTime();
+                int move = computerPlayer.chooseMove(snapshot, player, level);
+                Metrics.get().recordAiMove(System.nanoTime() - start, computerPlayer.getLastNodes(),
+                        mcts ? computerPlayer.getMctsSearch() : null);
+                return move;
+            }
+        }, thinkDelay, new AiExecutor.Callback() {
+            public void onMoveReady(int cell) {
+                if(cell >= 0 && currentPlayer == BoardStatus.SECOND){
+                    playTurn(board.rowOf(cell) + 1, board.columnOf(cell) + 1);
+                    if(touchedAt != 0){
+                        Metrics.get().touchToMove.record(System.nanoTime() - touchedAt);
+                        touchedAt = 0;
+                    }
                 }
             }
-        }, 1000);
+        });
+    }
+
+    /**
+     * Starts searching the computer's replies to the human's likely moves
+     * while it is the human's turn, when the search is slow enough to matter.
+     */
+    private void startPondering(){
+        if(!ponderingEnabled || networkClient != null || currentPlayer != BoardStatus.FIRST
+                || validateWin() != GameStatus.UNFINISHED
+                || !ComputerPlayer.usesMcts(board, currentDifficulty)){
+            ponderer.cancel();
+            return;
+        }
+        ponderer.start(board, currentPlayer.ordinal(), currentDifficulty);
     }
 
-    void drawTurn(Canvas canvas, BoardStatus status, int row, int column){
-        int boxWidth = getWidth() / 3;
-        int boxHeight = getHeight() / 3;
-        int x1 = boxWidth * (column - 1);
-        int x2 = boxWidth * column;
-        int y1 = boxHeight * (row - 1);
-        int y2 = boxHeight * row;
+    void drawTurn(Canvas canvas, int status, int cell){
+        if(status == Board.FREE){
+            return;
+        }
 
-        switch (status){
-            case FIRST:
-                canvas.drawBitmap(player1Bitmap,
-                        null,  // src
-                        new Rect(x1, y1, x2, y2),  // dest
-                        null);
-                break;
-            case SECOND:
-                canvas.drawBitmap(player2Bitmap,
-                        null,  // src
-                        new Rect(x1, y1, x2, y2),  // dest
-                        null);
-                break;
+        Rect box = cellRects[cell];
+        if(canvas.quickReject(box.left, box.top, box.right, box.bottom, Canvas.EdgeType.BW)){
+            return;
+        }
+
+        Bitmap piece = status == Board.FIRST ? player1Scaled : player2Scaled;
+        if(piece != null){
+            canvas.drawBitmap(piece, box.left, box.top, null);
         }
     }
 
@@ -283,123 +659,325 @@ public class GameBoard extends View {
                                 dialog.cancel();
                             }
                         });
+        if(analysisRunner != null && networkClient == null){
+            builder.setPositiveButton("Analizar",
+                    new DialogInterface.OnClickListener() {
+                        public void onClick(DialogInterface dialog, int id) {
+                            analyzeFinishedGame();
+                            resetBoard();
+                            dialog.cancel();
+                        }
+                    });
+        }
 
         AlertDialog alert = builder.create();
         alert.show();
     }
 
+    /* Copia la partida antes de que resetBoard limpie el historial */
+    private void analyzeFinishedGame(){
+        MoveLog moves = new MoveLog();
+        moves.restore(moveLog.toPacked(), moveLog.getPly(), new MnkBoard(board));
+        GameAnalysisRunner.Game game = new GameAnalysisRunner.Game(
+                board.getWidth(), board.getHeight(), board.getWinLength(), moves);
+
+        AnalysisDialog dialog = new AnalysisDialog(activity, analysisRunner);
+        dialog.show();
+        analysisRunner.analyze(Collections.singletonList(game), dialog);
+    }
+
     void resetBoard(){
-        board = new BoardStatus[][] {
-                { BoardStatus.FREE, BoardStatus.FREE, BoardStatus.FREE},
-                { BoardStatus.FREE, BoardStatus.FREE, BoardStatus.FREE},
-                { BoardStatus.FREE, BoardStatus.FREE, BoardStatus.FREE}
-        };
+        aiExecutor.cancel();
+        abandonJournaledGame();
+        board.clear();
+        moveLog.clear();
+        gameStartedAt = 0;
+        currentPlayer = BoardStatus.FIRST;
+        notifyRendererReset();
         invalidate();
+        requestNetworkMatch();
+        startPondering();
     }
 
-    public Position getRandomMove() {
-        Position position;
-        int row, column;
+    public boolean canUndo(){
+        return networkClient == null && moveLog.canUndo() && validateWin() == GameStatus.UNFINISHED;
+    }
 
-        do {
-            row = genericRandom.nextInt(3);
-            column = genericRandom.nextInt(3);
-        }
-        while (board[row][column] != BoardStatus.FREE);
+    public boolean canRedo(){
+        return networkClient == null && moveLog.canRedo() && validateWin() == GameStatus.UNFINISHED;
+    }
 
-        position = new Position(row, column);
+    /**
+     * Takes back moves until it is the human's turn again: the computer's
+     * reply and the human move before it, or just the human move if the
+     * computer was still thinking.
+     */
+    public void undoMove(){
+        if(!canUndo()){
+            return;
+        }
+        aiExecutor.cancel();
 
-        return position;
+        moveLog.undo(board);
+        if(moveLog.playerAt(moveLog.getPly()) == Board.SECOND && moveLog.canUndo()){
+            moveLog.undo(board);
+        }
+        if(journal != null){
+            journal.appendUndo(moveLog.getPly());
+        }
+        currentPlayer = BoardStatus.values()[moveLog.playerAt(moveLog.getPly())];
+        afterHistoryChange();
     }
 
-    public Position getBlockingMove() {
-        Position position = null;
-
-        for (int row = 0; row < 3; row++){
-            for (int column = 0; column < 3; column++){
-                BoardStatus positionStatus = board[row][column];
-                if(positionStatus != BoardStatus.FREE){
-                    continue;
-                }
-                board[row][column] = BoardStatus.FIRST;
-                GameStatus gameStatus = validateWin();
-                board[row][column] = positionStatus;
+    /** Replays the human move that was undone and the computer's reply to it, if recorded. */
+    public void redoMove(){
+        if(!canRedo()){
+            return;
+        }
+        aiExecutor.cancel();
 
-                if(gameStatus == GameStatus.WON){
-                    position = new Position(row,column);
-                }
-            }
+        journalMove(moveLog.redo(board), moveLog.playerAt(moveLog.getPly() - 1));
+        if(moveLog.canRedo() && moveLog.playerAt(moveLog.getPly()) == Board.SECOND){
+            journalMove(moveLog.redo(board), Board.SECOND);
         }
+        currentPlayer = BoardStatus.values()[Board.opponent(moveLog.playerAt(moveLog.getPly() - 1))];
+        afterHistoryChange();
+    }
 
-        return position;
+    private void afterHistoryChange(){
+        notifyRendererReset();
+        invalidate();
+        // Si la respuesta del computador no estaba en el historial, pensarla de nuevo
+        playComputerTurn();
+        startPondering();
     }
 
-    public Position getWinningMove() {
-        Position position = null;
+    /** Moves of the current game, including undone ones, for saving. */
+    public short[] getMoveHistory(){
+        return moveLog.toPacked();
+    }
 
-        for (int row = 0; row < 3; row++){
-            for (int column = 0; column < 3; column++){
-                BoardStatus positionStatus = board[row][column];
-                if(positionStatus != BoardStatus.FREE){
-                    continue;
-                }
-                board[row][column] = BoardStatus.SECOND;
-                GameStatus gameStatus = validateWin();
-                board[row][column] = positionStatus;
+    public int getMovePly(){
+        return moveLog.getPly();
+    }
 
-                if(gameStatus == GameStatus.WON){
-                    position = new Position(row,column);
-                }
-            }
+    /** Rebuilds the board by replaying the first {@code ply} moves of {@code history}. */
+    public void setMoveHistory(short[] history, int ply){
+        aiExecutor.cancel();
+        ponderer.cancel();
+        moveLog.restore(history, ply, board);
+        // La hora de inicio real se perdio con la vista anterior
+        gameStartedAt = ply > 0 ? SystemClock.elapsedRealtime() : 0;
+        notifyRendererReset();
+        invalidate();
+    }
+
+    /**
+     * Restores the game that was in progress when the process died, from
+     * the journal, at the difficulty it was being played at. Returns false
+     * if the last journaled game was finished.
+     */
+    public boolean resumeJournaledGame(){
+        if(journal == null){
+            return false;
+        }
+        int difficulty = journal.getOpenGameDifficulty();
+        MnkBoard recovered = journal.recoverOpenGame(moveLog);
+        if(recovered == null){
+            return false;
         }
 
-        return position;
+        aiExecutor.cancel();
+        ponderer.cancel();
+        board = recovered;
+        // La partida sigue y se registra con su dificultad; la de los ajustes vale desde la siguiente
+        if(difficulty >= 0 && difficulty < DifficultyLevel.values().length){
+            currentDifficulty = DifficultyLevel.values()[difficulty];
+        }
+        currentPlayer = moveLog.getPly() == 0 ? BoardStatus.FIRST
+                : BoardStatus.values()[Board.opponent(moveLog.playerAt(moveLog.getPly() - 1))];
+        gameStartedAt = moveLog.getPly() > 0 ? SystemClock.elapsedRealtime() : 0;
+        updateGeometry();
+        notifyRendererReset();
+        invalidate();
+        return true;
     }
 
-    public Position getComputerMove() {
-        Position position = null;
-
-        if (currentDifficulty == DifficultyLevel.Easy)
-            position = getRandomMove();
-        else if (currentDifficulty == DifficultyLevel.Harder) {
-            position = getWinningMove();
-            if (position == null)
-                position = getRandomMove();
-        } else if (currentDifficulty == DifficultyLevel.Expert) {
-            // Try to win, but if that's not possible,block.
-            // If that's not possible, position anywhere.
-            position = getWinningMove();
-            if (position == null)
-                position = getBlockingMove();
-            if (position == null)
-                position = getRandomMove();
+    private void journalMove(int cell, int player){
+        if(journal == null || networkClient != null){
+            return;
+        }
+        if(!journal.isGameOpen()){
+            journal.appendStart(board.getWidth(), board.getHeight(), board.getWinLength(),
+                    currentDifficulty.ordinal());
         }
+        journal.appendMove(cell, player);
+    }
 
-        return position;
+    private void abandonJournaledGame(){
+        if(journal != null && board.getMoveCount() > 0 && validateWin() == GameStatus.UNFINISHED){
+            journal.appendEnd(GameJournal.ABANDONED);
+        }
     }
 
-    public int[] getBoardState(){
-        int status[] = new int[9];
+    public boolean isNetworkGame(){
+        return networkClient != null;
+    }
+
+    /**
+     * Plays against a remote player through the server at {@code host:port}
+     * instead of the computer. Each new game, or a change of board size,
+     * asks the server for a new opponent on the current board.
+     */
+    public void startNetworkGame(String host, int port){
+        stopNetworkGame();
+        abandonJournaledGame();
+
+        // Los avisos de una conexion anterior se descartan por su numero de sesion
+        final int session = ++networkSession;
+        networkClient = new GameClient(new GameClient.Listener() {
+            public void onMatchStarted(final int seat, int width, int height, int winLength) {
+                post(new Runnable() {
+                    public void run() {
+                        if(session == networkSession){
+                            onNetworkMatchStarted(seat);
+                        }
+                    }
+                });
+            }
+
+            public void onOpponentMove(final int cell) {
+                post(new Runnable() {
+                    public void run() {
+                        if(session == networkSession){
+                            onNetworkMove(cell);
+                        }
+                    }
+                });
+            }
 
-        for (int row = 0; row < 3; row++) {
-            for (int column = 0; column < 3; column++) {
-                int positionStatus = board[row][column].ordinal();
-                int linearPosition = (row * 3) + column;
+            public void onRejected(final int reason) {
+                post(new Runnable() {
+                    public void run() {
+                        if(session == networkSession && reason == Protocol.BAD_BOARD){
+                            Toast.makeText(activity, "El servidor no admite este tablero", Toast.LENGTH_SHORT).show();
+                        }
+                    }
+                });
+            }
 
-                status[linearPosition] = positionStatus;
+            public void onOpponentLeft() {
+                post(new Runnable() {
+                    public void run() {
+                        if(session == networkSession && validateWin() == GameStatus.UNFINISHED){
+                            showAlert("Partida en red", "Tu rival abandonó la partida");
+                        }
+                    }
+                });
             }
+
+            public void onDisconnected(IOException cause) {
+                post(new Runnable() {
+                    public void run() {
+                        if(session == networkSession){
+                            stopNetworkGame();
+                            showAlert("Partida en red", "Se perdió la conexión con el servidor");
+                        }
+                    }
+                });
+            }
+        });
+        networkClient.connect(host, port);
+        resetBoard();
+    }
+
+    /** Goes back to playing against the computer. */
+    public void stopNetworkGame(){
+        if(networkClient == null){
+            return;
+        }
+        networkSession++;
+        networkClient.close();
+        networkClient = null;
+        localPlayer = BoardStatus.FIRST;
+        resetBoard();
+    }
+
+    private void requestNetworkMatch(){
+        if(networkClient == null){
+            return;
         }
+        localPlayer = null;
+        networkClient.join(board.getWidth(), board.getHeight(), board.getWinLength());
+        Toast.makeText(activity, "Buscando rival…", Toast.LENGTH_SHORT).show();
+    }
 
-        return status;
+    private void onNetworkMatchStarted(int seat){
+        localPlayer = BoardStatus.values()[seat];
+        Toast.makeText(activity, localPlayer == BoardStatus.FIRST
+                ? "Rival encontrado: empiezas tú" : "Rival encontrado: empieza tu rival",
+                Toast.LENGTH_SHORT).show();
     }
 
-    public void setBoardState(int[] status){
-        for (int row = 0; row < 3; row++) {
-            for (int column = 0; column < 3; column++) {
-                int linearPosition = (row * 3) + column;
-                board[row][column] = BoardStatus.values()[status[linearPosition]];
+    private void onNetworkMove(int cell){
+        if(localPlayer == null || currentPlayer == localPlayer
+                || cell >= board.getCellCount() || !board.isFree(cell)){
+            return;
+        }
+        playTurn(board.rowOf(cell) + 1, board.columnOf(cell) + 1);
+    }
+
+    static synchronized SolvedTable getSolvedTable(Context context) {
+        if(solvedTable == null){
+            long start = System.nanoTime();
+            try {
+                solvedTable = SolvedTable.load(context.getAssets().open(SOLVED_TABLE_ASSET));
+            } catch (IOException e) {
+                return null;
+            } finally {
+                Metrics.get().io.record(System.nanoTime() - start);
+            }
+        }
+        return solvedTable;
+    }
+
+    /**
+     * Maps the opening book on first use, so it costs nothing at startup and
+     * stays off the heap. Null if the asset is missing or cannot be mapped.
+     */
+    static synchronized OpeningBook getOpeningBook(Context context) {
+        if(openingBook == null && !openingBookMissing){
+            long start = System.nanoTime();
+            try {
+                AssetFileDescriptor descriptor = context.getAssets().openFd(OPENING_BOOK_ASSET);
+                FileInputStream input = descriptor.createInputStream();
+                try {
+                    openingBook = OpeningBook.wrap(input.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                            descriptor.getStartOffset(), descriptor.getLength()));
+                } finally {
+                    input.close();
+                    descriptor.close();
+                }
+            } catch (IOException e) {
+                // Sin libro se busca desde la primera jugada; no se reintenta en cada turno
+                openingBookMissing = true;
             }
+            Metrics.get().io.record(System.nanoTime() - start);
         }
+        return openingBook;
+    }
+
+    public int[] getBoardState(){
+        return board.getCells();
+    }
+
+    public void setBoardState(int[] status){
+        board.setCells(status);
+        // Sin historial de como se llego a esta posicion no hay nada que deshacer
+        moveLog.clear();
+        ponderer.cancel();
+        notifyRendererReset();
+        invalidate();
     }
 
     public void setHumanTextView(TextView humanTextView){
@@ -418,64 +996,25 @@ public class GameBoard extends View {
         tiesTextView.setText(Integer.toString(getTies()));
     }
 
-    public GameStatus validateWin(){
-        /* Diagonales */
-        if(board[0][0] != BoardStatus.FREE && board[1][1] != BoardStatus.FREE  && board[2][2] != BoardStatus.FREE
-                && board[0][0] == board[1][1] && board[0][0] == board[2][2]){
-            return GameStatus.WON;
-        }
-        if(board[0][2] != BoardStatus.FREE && board[1][1] != BoardStatus.FREE  && board[2][0] != BoardStatus.FREE
-                && board[0][2] == board[1][1]&& board[0][2] == board[2][0]){
-
-            return GameStatus.WON;
+    /**
+     * Start and end cells of the completed line when {@link #validateWin()}
+     * reports {@code WON}, otherwise null.
+     */
+    public int[] getWinningLine(){
+        if(board.status() != Board.WON){
+            return null;
         }
+        return new int[] { board.getWinningLineStart(), board.getWinningLineEnd() };
+    }
 
-        /* Horizontales */
-        if(board[0][0] != BoardStatus.FREE && board[0][1] != BoardStatus.FREE  && board[0][2] != BoardStatus.FREE
-                && board[0][0] == board[0][1] && board[0][0] == board[0][2]){
-
-            return GameStatus.WON;
-        }
-
-        if(board[1][0] != BoardStatus.FREE && board[1][1] != BoardStatus.FREE  && board[1][2] != BoardStatus.FREE
-                && board[1][0] == board[1][1] && board[1][0] == board[1][2]){
-
-            return GameStatus.WON;
-        }
-
-        if(board[2][0] != BoardStatus.FREE && board[2][1] != BoardStatus.FREE  && board[2][2] != BoardStatus.FREE
-                && board[2][0] == board[2][1] && board[2][0] == board[2][2]){
-
-            return GameStatus.WON;
-        }
-
-        /* Verticales */
-
-        if(board[0][0] != BoardStatus.FREE && board[1][0] != BoardStatus.FREE  && board[2][0] != BoardStatus.FREE
-                && board[0][0] == board[1][0] && board[0][0] == board[2][0]){
-
-            return GameStatus.WON;
-        }
-
-        if(board[0][1] != BoardStatus.FREE && board[1][1] != BoardStatus.FREE  && board[2][1] != BoardStatus.FREE
-                && board[0][1] == board[1][1] && board[0][1] == board[2][1]){
-
-            return GameStatus.WON;
-        }
-
-        if(board[0][2] != BoardStatus.FREE && board[1][2] != BoardStatus.FREE  && board[2][2] != BoardStatus.FREE
-                && board[0][2] == board[1][2] && board[0][2] == board[2][2]){
-
-            return GameStatus.WON;
-        }
-
-        if(board[0][0] != BoardStatus.FREE && board[0][2] != BoardStatus.FREE  && board[0][2] != BoardStatus.FREE
-                && board[1][0] != BoardStatus.FREE && board[1][1] != BoardStatus.FREE  && board[1][2] != BoardStatus.FREE
-                && board[2][0] != BoardStatus.FREE && board[2][1] != BoardStatus.FREE  && board[2][2] != BoardStatus.FREE ){
-
-            return GameStatus.DRAW_GAME;
+    public GameStatus validateWin(){
+        switch (board.status()){
+            case Board.WON:
+                return GameStatus.WON;
+            case Board.DRAW_GAME:
+                return GameStatus.DRAW_GAME;
+            default:
+                return GameStatus.UNFINISHED;
         }
-
-        return GameStatus.UNFINISHED;
     }
 }
@@ -0,0 +1,278 @@
+package co.edu.unal.triqui;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import co.edu.unal.triqui.engine.MnkBoard;
+import co.edu.unal.triqui.engine.MoveLog;
+
+/**
+ * Append-only journal of every game, one fixed-size record per event,
+ * written straight into a memory-mapped file. An append is a handful of
+ * stores into the page cache, and what is written survives a process kill
+ * without waiting for any lifecycle callback, so an interrupted game can be
+ * rebuilt on the next cold start by replaying the tail of the journal.
+ *
+ * <p>Records are 16 bytes: type, a byte argument, a short argument, an int
+ * argument and a timestamp. The type byte is written last, so a record cut
+ * short by a kill reads as the end of the journal. All methods are meant
+ * for the main thread.
+ */
+class GameJournal {
+    static final int RECORD_SIZE = 16;
+
+    /* Tipos de registro; 0 marca el final del diario */
+    static final byte START = 1;   // byte: dificultad, short: ancho << 8 | alto, int: fichas en linea
+    static final byte MOVE = 2;    // byte: jugador, short: casilla
+    static final byte UNDO = 3;    // short: jugada a la que se volvio
+    static final byte END = 4;     // byte: resultado (GameStatsStore) o ABANDONED
+
+    static final int ABANDONED = 3;
+
+    private static final String FILE_NAME = "game_journal.bin";
+    private static final int GROWTH = 64 * 1024;
+
+    private static GameJournal instance;
+
+    private final RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private int end;
+    private int openGameStart = -1;
+
+    static synchronized GameJournal get(Context context) {
+        if (instance == null) {
+            try {
+                instance = new GameJournal(new File(context.getFilesDir(), FILE_NAME));
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return instance;
+    }
+
+    private GameJournal(File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        map(Math.max(GROWTH, roundUp(file.length())));
+
+        // El final es el primer registro sin tipo
+        while (end + RECORD_SIZE <= buffer.capacity() && buffer.get(end) != 0) {
+            byte type = buffer.get(end);
+            if (type == START) {
+                openGameStart = end;
+            } else if (type == END) {
+                openGameStart = -1;
+            }
+            end += RECORD_SIZE;
+        }
+    }
+
+    /** True while the last started game has no END record. */
+    boolean isGameOpen() {
+        return openGameStart >= 0;
+    }
+
+    void appendStart(int width, int height, int winLength, int difficulty) {
+        if (isGameOpen()) {
+            appendEnd(ABANDONED);
+        }
+        openGameStart = end;
+        append(START, difficulty, width << 8 | height, winLength);
+    }
+
+    void appendMove(int cell, int player) {
+        append(MOVE, player, cell, 0);
+    }
+
+    void appendUndo(int ply) {
+        append(UNDO, 0, ply, 0);
+    }
+
+    void appendEnd(int outcome) {
+        if (!isGameOpen()) {
+            return;
+        }
+        append(END, outcome, 0, 0);
+        openGameStart = -1;
+    }
+
+    /**
+     * Replays the unfinished game at the tail of the journal, if any, into
+     * {@code moveLog} and returns a board holding its current position, or
+     * null if the last game was finished. {@code moveLog} is left alone when
+     * there is nothing to recover.
+     */
+    MnkBoard recoverOpenGame(MoveLog moveLog) {
+        if (!isGameOpen()) {
+            return null;
+        }
+
+        MnkBoard board = boardFor(openGameStart);
+        if (board == null) {
+            return null;
+        }
+
+        MoveLog replayed = new MoveLog();
+        for (Cursor cursor = new Cursor(openGameStart + RECORD_SIZE); cursor.next(); ) {
+            if (cursor.type() == MOVE) {
+                int cell = cursor.shortArg();
+                if (cell >= board.getCellCount() || !board.isFree(cell)) {
+                    return null;
+                }
+                board.play(cell, cursor.byteArg());
+                replayed.record(cell, cursor.byteArg());
+            } else if (cursor.type() == UNDO && cursor.shortArg() <= replayed.getPly()) {
+                replayed.seek(board, cursor.shortArg());
+            }
+        }
+        moveLog.restore(replayed.toPacked(), replayed.getPly(), board);
+        return board;
+    }
+
+    /** Difficulty ordinal stored in the START record of the unfinished game, or -1 if there is none. */
+    int getOpenGameDifficulty() {
+        return isGameOpen() ? buffer.get(openGameStart + 1) : -1;
+    }
+
+    interface FinishedGameVisitor {
+        /** {@code moves} is reused for the next game; copy it to keep it. */
+        void visit(int width, int height, int winLength, int difficulty, int outcome,
+                   MoveLog moves, long startedAt, long endedAt);
+    }
+
+    /**
+     * Calls {@code visitor} for every game that ended in a win or a draw,
+     * oldest first, straight from the mapped records.
+     */
+    void forEachFinishedGame(FinishedGameVisitor visitor) {
+        int start = -1;
+        MnkBoard board = null;
+        MoveLog moves = new MoveLog();
+        for (Cursor cursor = cursor(); cursor.next(); ) {
+            switch (cursor.type()) {
+                case START:
+                    start = cursor.current;
+                    board = boardFor(start);
+                    moves.clear();
+                    break;
+                case MOVE:
+                    if (board != null) {
+                        int cell = cursor.shortArg();
+                        if (cell < board.getCellCount() && board.isFree(cell)) {
+                            board.play(cell, cursor.byteArg());
+                            moves.record(cell, cursor.byteArg());
+                        } else {
+                            // Registro inconsistente: se descarta la partida
+                            board = null;
+                        }
+                    }
+                    break;
+                case UNDO:
+                    if (board != null && cursor.shortArg() <= moves.getPly()) {
+                        moves.seek(board, cursor.shortArg());
+                    }
+                    break;
+                case END:
+                    if (board != null && cursor.byteArg() != ABANDONED) {
+                        visitor.visit(board.getWidth(), board.getHeight(), board.getWinLength(),
+                                buffer.get(start + 1), cursor.byteArg(), moves,
+                                buffer.getLong(start + 8), cursor.timestamp());
+                    }
+                    board = null;
+                    break;
+            }
+        }
+    }
+
+    /** Empty board of the size given by the START record at {@code start}, or null if it is invalid. */
+    private MnkBoard boardFor(int start) {
+        int size = buffer.getShort(start + 2) & 0xFFFF;
+        try {
+            return new MnkBoard(size >> 8, size & 0xFF, buffer.getInt(start + 4));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Cursor over every record, reading the mapped file in place. */
+    Cursor cursor() {
+        return new Cursor(0);
+    }
+
+    /**
+     * Forward-only view of the records: the getters read the current record
+     * straight from the mapped buffer, so iterating allocates nothing.
+     */
+    final class Cursor {
+        private int position;
+        private int current = -1;
+
+        private Cursor(int start) {
+            position = start;
+        }
+
+        boolean next() {
+            if (position >= end) {
+                return false;
+            }
+            current = position;
+            position += RECORD_SIZE;
+            return true;
+        }
+
+        byte type() {
+            return buffer.get(current);
+        }
+
+        int byteArg() {
+            return buffer.get(current + 1);
+        }
+
+        int shortArg() {
+            return buffer.getShort(current + 2) & 0xFFFF;
+        }
+
+        int intArg() {
+            return buffer.getInt(current + 4);
+        }
+
+        long timestamp() {
+            return buffer.getLong(current + 8);
+        }
+    }
+
+    private void append(byte type, int byteArg, int shortArg, int intArg) {
+        if (end + RECORD_SIZE > buffer.capacity()) {
+            // Crecer el mapeo es lo unico que toca el disco en el hilo principal
+            long start = System.nanoTime();
+            try {
+                map(buffer.capacity() + GROWTH);
+            } catch (IOException e) {
+                // Sin espacio: el diario deja de crecer pero el juego sigue
+                return;
+            } finally {
+                Metrics.get().io.record(System.nanoTime() - start);
+            }
+        }
+
+        buffer.put(end + 1, (byte) byteArg);
+        buffer.putShort(end + 2, (short) shortArg);
+        buffer.putInt(end + 4, intArg);
+        buffer.putLong(end + 8, System.currentTimeMillis());
+        // El tipo al final: hasta aqui el registro no existe
+        buffer.put(end, type);
+        end += RECORD_SIZE;
+    }
+
+    private void map(long capacity) throws IOException {
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static long roundUp(long length) {
+        return (length + GROWTH - 1) / GROWTH * GROWTH;
+    }
+}
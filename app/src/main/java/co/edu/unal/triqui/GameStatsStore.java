@@ -0,0 +1,359 @@
+package co.edu.unal.triqui;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.DifficultyLevel;
+
+/**
+ * Per-game results kept in a compact append-only file. Results are added
+ * to in-memory aggregates at once and written in batches by a background
+ * thread, so the main thread never waits on disk. Resetting the scores
+ * appends a marker instead of rewriting the file; the aggregates count the
+ * games after the last marker.
+ *
+ * <p>All methods are meant for the main thread.
+ */
+class GameStatsStore {
+    interface Listener {
+        void onStatsChanged(GameStatsStore store);
+    }
+
+    static final int HUMAN_WIN = 0;
+    static final int COMPUTER_WIN = 1;
+    static final int DRAW = 2;
+
+    private static final String FILE_NAME = "game_stats.bin";
+    private static final int MAGIC = 0x54515331; // "TQS1"
+
+    /*
+     * Registro de 20 bytes: tipo, resultado, dificultad, ancho, alto,
+     * fichas en linea (1 byte cada uno), jugadas (2), duracion en ms (4)
+     * y fecha en ms (8).
+     */
+    static final int RECORD_SIZE = 20;
+    private static final byte TYPE_GAME = 0;
+    private static final byte TYPE_RESET = 1;
+
+    private static final int BATCH_SIZE = 16;
+    private static final long FLUSH_DELAY_MILLIS = 5000;
+
+    private static GameStatsStore instance;
+
+    private final File file;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ScheduledExecutorService writer;
+    private ScheduledFuture<?> scheduledFlush;
+
+    /* Registros aun no escritos; solo se toca en el hilo principal */
+    private ByteBuffer pending = ByteBuffer.allocate(BATCH_SIZE * RECORD_SIZE);
+
+    /* Agregados desde el ultimo reinicio, solo en el hilo principal */
+    private final Totals totals = new Totals();
+    private boolean loaded;
+    private boolean resetBeforeLoad;
+    private Listener listener;
+
+    static synchronized GameStatsStore get(Context context) {
+        if (instance == null) {
+            instance = new GameStatsStore(new File(context.getFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    private GameStatsStore(File file) {
+        this.file = file;
+        writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "triqui-stats");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // Primera tarea del escritor: toda escritura posterior va despues de leer
+        writer.execute(new Runnable() {
+            public void run() {
+                final Totals stored = load();
+                mainHandler.post(new Runnable() {
+                    public void run() {
+                        if (!resetBeforeLoad) {
+                            totals.add(stored);
+                        }
+                        loaded = true;
+                        notifyListener();
+                    }
+                });
+            }
+        });
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** False until the file has been read; the aggregates only cover this session until then. */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    int getHumanWins() {
+        return totals.humanWins;
+    }
+
+    int getComputerWins() {
+        return totals.computerWins;
+    }
+
+    int getTies() {
+        return totals.ties;
+    }
+
+    int getGames() {
+        return totals.humanWins + totals.computerWins + totals.ties;
+    }
+
+    long getAverageDurationMillis() {
+        int games = getGames();
+        return games == 0 ? 0 : totals.durationMillis / games;
+    }
+
+    float getAverageMoves() {
+        int games = getGames();
+        return games == 0 ? 0 : totals.moves / (float) games;
+    }
+
+    int getWins(DifficultyLevel level) {
+        return totals.winsByLevel[level.ordinal()];
+    }
+
+    int getLosses(DifficultyLevel level) {
+        return totals.lossesByLevel[level.ordinal()];
+    }
+
+    void recordGame(DifficultyLevel level, int width, int height, int winLength,
+                    long durationMillis, int moves, int outcome) {
+        totals.addGame(level.ordinal(), outcome, durationMillis, moves);
+
+        ensurePending();
+        pending.put(TYPE_GAME)
+                .put((byte) outcome)
+                .put((byte) level.ordinal())
+                .put((byte) width)
+                .put((byte) height)
+                .put((byte) winLength)
+                .putShort((short) moves)
+                .putInt((int) Math.min(Integer.MAX_VALUE, durationMillis))
+                .putLong(System.currentTimeMillis());
+        scheduleFlush();
+        notifyListener();
+    }
+
+    void resetScores() {
+        totals.clear();
+        if (!loaded) {
+            resetBeforeLoad = true;
+        }
+
+        ensurePending();
+        pending.put(TYPE_RESET)
+                .put(new byte[RECORD_SIZE - 9])
+                .putLong(System.currentTimeMillis());
+        scheduleFlush();
+        notifyListener();
+    }
+
+    /** Hands the pending records to the writer now, without waiting for the write. */
+    void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.position() == 0) {
+            return;
+        }
+
+        final byte[] batch = new byte[pending.position()];
+        pending.flip();
+        pending.get(batch);
+        pending.clear();
+
+        writer.execute(new Runnable() {
+            public void run() {
+                append(batch);
+            }
+        });
+    }
+
+    private void ensurePending() {
+        if (pending.remaining() < RECORD_SIZE) {
+            flush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (pending.remaining() < RECORD_SIZE) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = writer.schedule(new Runnable() {
+                public void run() {
+                    mainHandler.post(new Runnable() {
+                        public void run() {
+                            scheduledFlush = null;
+                            flush();
+                        }
+                    });
+                }
+            }, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void notifyListener() {
+        if (listener != null) {
+            listener.onStatsChanged(this);
+        }
+    }
+
+    /* Solo en el hilo del escritor */
+    private void append(byte[] batch) {
+        long start = System.nanoTime();
+        boolean isNew = !file.exists() || file.length() == 0;
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(file, true);
+            if (isNew) {
+                out.write(ByteBuffer.allocate(4).putInt(MAGIC).array());
+            }
+            out.write(batch);
+        } catch (IOException e) {
+            // Las estadisticas no valen un cierre de la app: se pierde el lote
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+            Metrics.get().io.record(System.nanoTime() - start);
+        }
+    }
+
+    /* Solo en el hilo del escritor */
+    private Totals load() {
+        Totals stored = new Totals();
+        if (!file.exists()) {
+            return stored;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) {
+                return stored;
+            }
+            byte[] record = new byte[RECORD_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (true) {
+                // Un registro a medio escribir al final se ignora
+                in.readFully(record);
+                buffer.clear();
+                if (buffer.get() == TYPE_RESET) {
+                    stored.clear();
+                    continue;
+                }
+                int outcome = buffer.get();
+                int level = buffer.get();
+                buffer.position(6);
+                int moves = buffer.getShort();
+                long duration = buffer.getInt();
+                if (level >= 0 && level < DifficultyLevel.values().length) {
+                    stored.addGame(level, outcome, duration, moves);
+                }
+            }
+        } catch (EOFException e) {
+            return stored;
+        } catch (IOException e) {
+            return stored;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static final class Totals {
+        int humanWins;
+        int computerWins;
+        int ties;
+        long durationMillis;
+        long moves;
+        final int[] winsByLevel = new int[DifficultyLevel.values().length];
+        final int[] lossesByLevel = new int[DifficultyLevel.values().length];
+
+        void addGame(int level, int outcome, long duration, int moveCount) {
+            switch (outcome) {
+                case HUMAN_WIN:
+                    humanWins++;
+                    winsByLevel[level]++;
+                    break;
+                case COMPUTER_WIN:
+                    computerWins++;
+                    lossesByLevel[level]++;
+                    break;
+                default:
+                    ties++;
+                    break;
+            }
+            durationMillis += duration;
+            moves += moveCount;
+        }
+
+        void add(Totals other) {
+            humanWins += other.humanWins;
+            computerWins += other.computerWins;
+            ties += other.ties;
+            durationMillis += other.durationMillis;
+            moves += other.moves;
+            for (int level = 0; level < winsByLevel.length; level++) {
+                winsByLevel[level] += other.winsByLevel[level];
+                lossesByLevel[level] += other.lossesByLevel[level];
+            }
+        }
+
+        void clear() {
+            humanWins = 0;
+            computerWins = 0;
+            ties = 0;
+            durationMillis = 0;
+            moves = 0;
+            for (int level = 0; level < winsByLevel.length; level++) {
+                winsByLevel[level] = 0;
+                lossesByLevel[level] = 0;
+            }
+        }
+    }
+}
@@ -12,13 +12,25 @@ import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.content.Intent;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.MnkBoard;
+import co.edu.unal.triqui.engine.MoveLog;
+import co.edu.unal.triqui.net.Protocol;
+
 public class MainActivity extends AppCompatActivity {
     GameBoard gameBoard;
     private SharedPreferences mPrefs;
+    private GameStatsStore statsStore;
+    private GameJournal journal;
+    private GameAnalysisRunner analysisRunner;
 
     static final int DIALOG_SETTINGS = 0;
     static final int DIALOG_QUIT_ID = 1;
@@ -33,11 +45,39 @@ public class MainActivity extends AppCompatActivity {
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        super.onPrepareOptionsMenu(menu);
+
+        menu.findItem(R.id.undo).setEnabled(gameBoard.canUndo());
+        menu.findItem(R.id.redo).setEnabled(gameBoard.canRedo());
+        menu.findItem(R.id.network_game).setTitle(gameBoard.isNetworkGame()
+                ? "Jugar contra el computador" : "Jugar en red");
+        return true;
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         switch(item.getItemId()){
             case R.id.new_game:
                 startNewGame();
+                gameBoard.resetBoard();
+                return true;
+            case R.id.undo:
+                gameBoard.undoMove();
+                return true;
+            case R.id.redo:
+                gameBoard.redoMove();
+                return true;
+            case R.id.network_game:
+                if (gameBoard.isNetworkGame()) {
+                    gameBoard.stopNetworkGame();
+                } else {
+                    showNetworkDialog();
+                }
+                return true;
+            case R.id.analyze:
+                analyzeJournaledGames();
                 return true;
             case R.id.settings:
                 startActivityForResult(new Intent(this, Settings.class), 0);
@@ -104,40 +144,85 @@ public class MainActivity extends AppCompatActivity {
         super.onSaveInstanceState(outState);
 
         outState.putIntArray("board", gameBoard.getBoardState());
+        outState.putShortArray("moveHistory", gameBoard.getMoveHistory());
+        outState.putInt("movePly", gameBoard.getMovePly());
+        outState.putInt("boardWidth", gameBoard.getBoardWidth());
+        outState.putInt("boardHeight", gameBoard.getBoardHeight());
+        outState.putInt("winLength", gameBoard.getWinLength());
         outState.putInt("mHumanWins", gameBoard.getHumanWin());
         outState.putInt("mComputerWins", gameBoard.getComputerWin());
         outState.putInt("mTies", gameBoard.getTies());
         outState.putInt("mDifficulty", gameBoard.getDifficultyLevel().ordinal());
+        outState.putInt("currentPlayer", gameBoard.getCurrentPlayer().ordinal());
     }
 
     @Override
     protected void onRestoreInstanceState(Bundle savedInstanceState) {
-        gameBoard.setBoardState(savedInstanceState.getIntArray("board"));
+        gameBoard.setBoardSize(savedInstanceState.getInt("boardWidth"),
+                savedInstanceState.getInt("boardHeight"),
+                savedInstanceState.getInt("winLength"));
+        short[] moveHistory = savedInstanceState.getShortArray("moveHistory");
+        if (moveHistory != null) {
+            gameBoard.setMoveHistory(moveHistory, savedInstanceState.getInt("movePly"));
+        } else {
+            gameBoard.setBoardState(savedInstanceState.getIntArray("board"));
+        }
         gameBoard.setHumanWin(savedInstanceState.getInt("mHumanWins"));
         gameBoard.setComputerWin(savedInstanceState.getInt("mComputerWins"));
         gameBoard.setTies(savedInstanceState.getInt("mTies"));
-        gameBoard.setDifficultyLevel(GameBoard.DifficultyLevel.values()[savedInstanceState.getInt("mDifficulty")]);
+        gameBoard.setDifficultyLevel(DifficultyLevel.values()[savedInstanceState.getInt("mDifficulty")]);
+        gameBoard.setCurrentPlayer(GameBoard.BoardStatus.values()[savedInstanceState.getInt("currentPlayer",
+                GameBoard.BoardStatus.FIRST.ordinal())]);
         gameBoard.displayScores();
     }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.attach(this);
         setContentView(R.layout.activity_main);
 
         startNewGame();
+        // Once per activity: "Nuevo juego" runs startNewGame() again
+        analysisRunner = new GameAnalysisRunner(this);
+        gameBoard.setAnalysisRunner(analysisRunner);
+        if (savedInstanceState == null) {
+            // Cold start: pick up a game the process was killed in the middle of
+            gameBoard.resumeJournaledGame();
+        }
+        // Sounds, assets and engine tables load in the background while the board is drawn
+        gameBoard.warmUp();
     }
 
     @Override
     protected void onStop() {
         super.onStop();
 
-        // Save the current scores
-        SharedPreferences.Editor ed = mPrefs.edit();
-        ed.putInt("mHumanWins", gameBoard.getHumanWin());
-        ed.putInt("mComputerWins", gameBoard.getComputerWin());
-        ed.putInt("mTiesWins", gameBoard.getTies());
-        ed.commit();
+        // Scores live in the stats store; hand its pending games to the writer
+        statsStore.flush();
+        if (mPrefs.getBoolean("metrics", false)) {
+            Metrics.get().export(this);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // The store outlives the activity; do not keep it reachable from there
+        statsStore.setListener(null);
+        analysisRunner.shutdown();
+        StartupTrace.detach(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // Decoded pieces are cheap to rebuild; give the memory back when asked
+        if (level >= TRIM_MEMORY_MODERATE) {
+            BitmapCache.clear();
+        }
     }
 
     @Override
@@ -150,26 +235,73 @@ public class MainActivity extends AppCompatActivity {
 
     private void loadSettings(){
         Boolean soundEnabled = mPrefs.getBoolean("sound", true);
+        boolean animations = mPrefs.getBoolean("animations", false);
+        boolean pondering = mPrefs.getBoolean("pondering", true);
+        boolean metrics = mPrefs.getBoolean("metrics", false);
         String difficultyLevel = mPrefs.getString("difficulty_level", getString(R.string.difficulty_easy));
         String victoryMessage = mPrefs.getString("victory_message", getString(R.string.result_human_wins));
+        String boardSize = mPrefs.getString("board_size", getString(R.string.board_size_default));
+        String aiDelay = mPrefs.getString("ai_delay", getString(R.string.ai_delay_default));
 
-        if (difficultyLevel.equals(getResources().getString(R.string.difficulty_easy)))
-            gameBoard.setDifficultyLevel(GameBoard.DifficultyLevel.Easy);
-        else if (difficultyLevel.equals(getResources().getString(R.string.difficulty_harder)))
-            gameBoard.setDifficultyLevel(GameBoard.DifficultyLevel.Harder);
-        else
-            gameBoard.setDifficultyLevel(GameBoard.DifficultyLevel.Expert);
+        gameBoard.setDifficultyLevel(difficultyFromPreference(difficultyLevel));
 
         gameBoard.setSound(soundEnabled);
         gameBoard.setVictoryMessage(victoryMessage);
+        applyBoardSize(boardSize);
+        applyRenderer(animations);
+        gameBoard.setPondering(pondering);
+        gameBoard.setMetricsOverlay(metrics);
+
+        try {
+            gameBoard.setThinkDelay(Long.parseLong(aiDelay));
+        } catch (NumberFormatException e) {
+            gameBoard.setThinkDelay(Long.parseLong(getString(R.string.ai_delay_default)));
+        }
+    }
+
+    private DifficultyLevel difficultyFromPreference(String value){
+        // The preference stores the visible name; look up only as many names as needed
+        if (value.equals(getString(R.string.difficulty_easy)))
+            return DifficultyLevel.Easy;
+        if (value.equals(getString(R.string.difficulty_harder)))
+            return DifficultyLevel.Harder;
+        if (value.equals(getString(R.string.difficulty_unbeatable)))
+            return DifficultyLevel.Unbeatable;
+        return DifficultyLevel.Expert;
+    }
+
+    private void applyRenderer(boolean animations){
+        SurfaceBoardView surfaceBoard = findViewById(R.id.surface_board);
+        if (animations) {
+            surfaceBoard.setVisibility(View.VISIBLE);
+            gameBoard.setRenderer(surfaceBoard);
+        } else {
+            gameBoard.setRenderer(null);
+            surfaceBoard.setVisibility(View.GONE);
+        }
+    }
+
+    private void applyBoardSize(String boardSize){
+        // Stored as "width,height,winLength"
+        String[] parts = boardSize.split(",");
+        try {
+            gameBoard.setBoardSize(Integer.parseInt(parts[0].trim()),
+                    Integer.parseInt(parts[1].trim()),
+                    Integer.parseInt(parts[2].trim()));
+        } catch (RuntimeException e) {
+            gameBoard.setBoardSize(3, 3, 3);
+        }
     }
 
     private void resetScore(){
-        gameBoard.setHumanWin(0);
-        gameBoard.setComputerWin(0);
-        gameBoard.setTies(0);
+        // Counters saved by older versions are added to the store's, so clear them too
+        SharedPreferences.Editor ed = mPrefs.edit();
+        ed.putInt("mHumanWins", 0);
+        ed.putInt("mComputerWins", 0);
+        ed.putInt("mTiesWins", 0);
+        ed.apply();
 
-        gameBoard.displayScores();
+        statsStore.resetScores();
     }
 
     private void initializeScores(){
@@ -178,13 +310,78 @@ public class MainActivity extends AppCompatActivity {
         gameBoard.setTiesTextView((TextView) findViewById(R.id.ties_wins));
 
         mPrefs = getSharedPreferences("ttt_prefs", MODE_PRIVATE);
-        int humanWins = mPrefs.getInt("mHumanWins", 0);
-        int computerWins = mPrefs.getInt("mComputerWins", 0);
-        int tiesWins = mPrefs.getInt("mTiesWins", 0);
+        statsStore = GameStatsStore.get(this);
+        gameBoard.setStatsStore(statsStore);
+        journal = GameJournal.get(this);
+        gameBoard.setJournal(journal);
+
+        // Refreshed again when the store finishes reading its file
+        statsStore.setListener(new GameStatsStore.Listener() {
+            @Override
+            public void onStatsChanged(GameStatsStore store) {
+                showStoredScores();
+            }
+        });
+        showStoredScores();
+    }
+
+    private void showNetworkDialog(){
+        final EditText address = new EditText(this);
+        address.setSingleLine(true);
+        address.setText(mPrefs.getString("server_address", "10.0.2.2:" + Protocol.DEFAULT_PORT));
+
+        new AlertDialog.Builder(this)
+                .setTitle("Servidor (host:puerto)")
+                .setView(address)
+                .setPositiveButton("Conectar", new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog, int id) {
+                        String value = address.getText().toString().trim();
+                        int colon = value.lastIndexOf(':');
+                        int port;
+                        try {
+                            port = colon < 0 ? Protocol.DEFAULT_PORT : Integer.parseInt(value.substring(colon + 1));
+                        } catch (NumberFormatException e) {
+                            port = -1;
+                        }
+                        String host = colon < 0 ? value : value.substring(0, colon);
+                        if (host.isEmpty() || port <= 0 || port > 65535) {
+                            Toast.makeText(MainActivity.this, "Dirección inválida", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+
+                        mPrefs.edit().putString("server_address", value).apply();
+                        gameBoard.startNetworkGame(host, port);
+                    }
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void analyzeJournaledGames(){
+        final List<GameAnalysisRunner.Game> games = new ArrayList<>();
+        if(journal != null){
+            journal.forEachFinishedGame(new GameJournal.FinishedGameVisitor() {
+                @Override
+                public void visit(int width, int height, int winLength, int difficulty, int outcome,
+                                  MoveLog moves, long startedAt, long endedAt) {
+                    // El diario reutiliza el historial entre partidas
+                    MoveLog copy = new MoveLog();
+                    copy.restore(moves.toPacked(), moves.getPly(), new MnkBoard(width, height, winLength));
+                    games.add(new GameAnalysisRunner.Game(width, height, winLength, copy));
+                }
+            });
+        }
+
+        AnalysisDialog dialog = new AnalysisDialog(this, analysisRunner);
+        dialog.show();
+        analysisRunner.analyze(games, dialog);
+    }
 
-        gameBoard.setHumanWin(humanWins);
-        gameBoard.setComputerWin(computerWins);
-        gameBoard.setTies(tiesWins);
+    private void showStoredScores(){
+        // Totals from before the stats store existed were kept in the preferences
+        gameBoard.setHumanWin(mPrefs.getInt("mHumanWins", 0) + statsStore.getHumanWins());
+        gameBoard.setComputerWin(mPrefs.getInt("mComputerWins", 0) + statsStore.getComputerWins());
+        gameBoard.setTies(mPrefs.getInt("mTiesWins", 0) + statsStore.getTies());
 
         gameBoard.displayScores();
     }
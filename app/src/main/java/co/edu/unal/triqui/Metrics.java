@@ -0,0 +1,167 @@
+package co.edu.unal.triqui;
+
+import android.content.Context;
+import android.os.Process;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import co.edu.unal.triqui.engine.LatencyHistogram;
+import co.edu.unal.triqui.engine.MctsSearch;
+import co.edu.unal.triqui.engine.PositionCache;
+
+/**
+ * Process-wide timings of the hot paths: frames, the human's tap until the
+ * computer's reply, the computer's think time and positions searched, the
+ * media setup on resume, disk I/O and the cold start. Everything is recorded into atomic
+ * histograms and counters from whatever thread does the work, always on.
+ * {@link GameBoard} can draw a summary over the board and {@link #export}
+ * writes the whole set as JSON from a background thread.
+ */
+final class Metrics {
+    private static final String FILE_NAME = "metrics.json";
+
+    private static final Metrics instance = new Metrics();
+
+    final LatencyHistogram frame = new LatencyHistogram();
+    final LatencyHistogram touchToMove = new LatencyHistogram();
+    final LatencyHistogram aiThink = new LatencyHistogram();
+    final LatencyHistogram mediaSetup = new LatencyHistogram();
+    final LatencyHistogram io = new LatencyHistogram();
+
+    private final AtomicLong aiNodes = new AtomicLong();
+    private final AtomicLong aiNanos = new AtomicLong();
+    /* Simulaciones por segundo de la ultima jugada que uso MCTS */
+    private volatile double playoutsPerSecond;
+    /* Arranque en frio, de StartupTrace; -1 mientras no se alcanza */
+    volatile long timeToFirstFrameMillis = -1;
+    volatile long timeToInteractiveMillis = -1;
+
+    private ExecutorService exporter;
+
+    static Metrics get() {
+        return instance;
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * One computer move: how long it took and how many positions it
+     * searched; {@code mctsSearch} is the MCTS engine if the move used it.
+     */
+    void recordAiMove(long nanos, long nodes, MctsSearch mctsSearch) {
+        aiThink.record(nanos);
+        aiNanos.addAndGet(nanos);
+        aiNodes.addAndGet(nodes);
+        if (mctsSearch != null) {
+            playoutsPerSecond = mctsSearch.getPlayoutsPerSecond();
+        }
+    }
+
+    /** Positions searched per second of think time, over the whole session. */
+    double nodesPerSecond() {
+        long nanos = aiNanos.get();
+        return nanos == 0 ? 0 : aiNodes.get() * 1e9 / nanos;
+    }
+
+    double playoutsPerSecond() {
+        return playoutsPerSecond;
+    }
+
+    /** Short lines for the debug overlay. */
+    String[] summary() {
+        return new String[] {
+                String.format(Locale.ROOT, "cuadro p50 %.1f p99 %.1f ms", millis(frame.percentile(50)),
+                        millis(frame.percentile(99))),
+                String.format(Locale.ROOT, "toque-jugada p50 %.0f p99 %.0f ms",
+                        millis(touchToMove.percentile(50)), millis(touchToMove.percentile(99))),
+                String.format(Locale.ROOT, "IA p50 %.0f p99 %.0f ms, %.0f nodos/s",
+                        millis(aiThink.percentile(50)), millis(aiThink.percentile(99)), nodesPerSecond()),
+                String.format(Locale.ROOT, "cache %.0f%% aciertos, MCTS %.0f sim/s",
+                        100 * PositionCache.getShared().getHitRate(), playoutsPerSecond()),
+                String.format(Locale.ROOT, "E/S p99 %.1f ms, medios p99 %.1f ms",
+                        millis(io.percentile(99)), millis(mediaSetup.percentile(99))),
+                String.format(Locale.ROOT, "arranque: primer cuadro %d ms, listo %d ms",
+                        timeToFirstFrameMillis, timeToInteractiveMillis),
+        };
+    }
+
+    String toJson() {
+        PositionCache cache = PositionCache.getShared();
+        return String.format(Locale.ROOT,
+                "{\"frame\":%s,\"touchToMove\":%s,\"aiThink\":%s,\"mediaSetup\":%s,\"io\":%s,"
+                        + "\"ai\":{\"nodes\":%d,\"nodesPerSecond\":%.0f,\"mctsPlayoutsPerSecond\":%.0f},"
+                        + "\"positionCache\":{\"hits\":%d,\"misses\":%d,\"evictions\":%d,\"hitRate\":%.4f},"
+                        + "\"startup\":{\"timeToFirstFrameMillis\":%d,\"timeToInteractiveMillis\":%d}}",
+                histogramJson(frame), histogramJson(touchToMove), histogramJson(aiThink),
+                histogramJson(mediaSetup), histogramJson(io), aiNodes.get(), nodesPerSecond(),
+                playoutsPerSecond(), cache.getHits(), cache.getMisses(), cache.getEvictions(),
+                cache.getHitRate(), timeToFirstFrameMillis, timeToInteractiveMillis);
+    }
+
+    /**
+     * Writes {@code metrics.json} on a background thread, in the app's
+     * external files directory so it can be pulled without root.
+     */
+    void export(Context context) {
+        File directory = context.getExternalFilesDir(null);
+        final File file = new File(directory != null ? directory : context.getFilesDir(), FILE_NAME);
+        exporter().execute(new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+                OutputStream out = null;
+                try {
+                    out = new FileOutputStream(file);
+                    out.write(toJson().getBytes("UTF-8"));
+                } catch (IOException e) {
+                    // Solo es diagnostico: sin archivo no se pierde nada del juego
+                } finally {
+                    if (out != null) {
+                        try {
+                            out.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+                io.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private synchronized ExecutorService exporter() {
+        if (exporter == null) {
+            exporter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "triqui-metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return exporter;
+    }
+
+    private static String histogramJson(LatencyHistogram histogram) {
+        return String.format(Locale.ROOT,
+                "{\"count\":%d,\"p50Micros\":%d,\"p90Micros\":%d,\"p99Micros\":%d,\"maxMicros\":%d}",
+                histogram.count(), histogram.percentile(50) / 1000, histogram.percentile(90) / 1000,
+                histogram.percentile(99) / 1000, histogram.max() / 1000);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,189 @@
+package co.edu.unal.triqui;
+
+import android.content.Context;
+import android.os.Process;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import co.edu.unal.triqui.engine.Board;
+import co.edu.unal.triqui.engine.ComputerPlayer;
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.EndgameSolver;
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/**
+ * Searches the computer's replies while the human is still thinking. For
+ * the most likely human moves it plays the move on a copy of the board and
+ * caches the computer's answer; when the real move arrives the cached
+ * answer is taken and the rest of the work is dropped.
+ *
+ * <p>It has its own {@link ComputerPlayer}, so it never shares search state
+ * with the AI worker, but it loads the same opening book: a pondered reply
+ * must be the move the AI worker would have played.
+ */
+class Ponderer {
+    /* Solo se piensan las respuestas mas probables del humano */
+    private static final int MAX_CANDIDATES = 6;
+
+    private final ComputerPlayer computerPlayer = new ComputerPlayer(new Random());
+    private final Context context;
+    private ExecutorService worker;
+    private Future<?> pending;
+
+    /* Respuestas por jugada del humano, y la posicion y nivel para los que valen */
+    private ConcurrentHashMap<Integer, Integer> replies;
+    private int[] baseCells;
+    private DifficultyLevel baseLevel;
+
+    Ponderer(Context context) {
+        this.context = context.getApplicationContext();
+        // Los finales se resuelven en el pool y la tabla del proceso, como en el tablero
+        computerPlayer.setEndgameSolver(EndgameSolver.newShared());
+    }
+
+    /**
+     * Starts pondering {@code position}, where {@code human} is to move.
+     * Any previous pondering is cancelled.
+     */
+    void start(MnkBoard position, final int human, final DifficultyLevel level) {
+        cancel();
+        if (position.status() != Board.UNFINISHED) {
+            return;
+        }
+
+        final MnkBoard base = new MnkBoard(position);
+        final int[] candidates = likelyMoves(base, human);
+        // Un mapa nuevo por turno: una busqueda vieja que aun no vio la
+        // interrupcion no puede escribir en el del turno actual
+        final ConcurrentHashMap<Integer, Integer> turnReplies = new ConcurrentHashMap<>();
+        replies = turnReplies;
+        baseCells = base.getCells();
+        baseLevel = level;
+
+        pending = worker().submit(new Runnable() {
+            public void run() {
+                // Sin el libro la respuesta pensada saldria de MCTS y reemplazaria la del libro
+                if (computerPlayer.getOpeningBook() == null) {
+                    computerPlayer.setOpeningBook(GameBoard.getOpeningBook(context));
+                }
+                for (int cell : candidates) {
+                    MnkBoard next = new MnkBoard(base);
+                    if (next.play(cell, human) != Board.UNFINISHED) {
+                        continue;
+                    }
+                    int reply = computerPlayer.chooseMove(next, Board.opponent(human), level);
+                    // Una busqueda interrumpida devuelve lo que llevaba: no se guarda
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    turnReplies.put(cell, reply);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the cached reply to the human's last move on {@code board} and
+     * stops pondering, or -1 if that move was not pondered in time.
+     */
+    int take(MnkBoard board, DifficultyLevel level) {
+        int lastMove = board.getLastMove();
+        Integer reply = lastMove >= 0 && replies != null ? replies.get(lastMove) : null;
+        boolean matches = reply != null && level == baseLevel && isBaseOf(board, lastMove);
+        cancel();
+        return matches ? reply : -1;
+    }
+
+    void cancel() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+        replies = null;
+        baseCells = null;
+        baseLevel = null;
+    }
+
+    void shutdown() {
+        cancel();
+        computerPlayer.shutdown();
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
+    }
+
+    private boolean isBaseOf(MnkBoard board, int lastMove) {
+        if (baseCells == null || baseCells.length != board.getCellCount()) {
+            return false;
+        }
+        int[] cells = board.getCells();
+        cells[lastMove] = Board.FREE;
+        return Arrays.equals(cells, baseCells);
+    }
+
+    /**
+     * Orders the human's options by how likely they are: winning, then
+     * blocking, then closest to the computer's last stone.
+     */
+    private static int[] likelyMoves(MnkBoard board, int human) {
+        int count = board.getCellCount() - board.getMoveCount();
+        int[] cells = new int[count];
+        int[] rank = new int[board.getCellCount()];
+        // Sin jugada previa (el humano abre) se parte del centro
+        int lastMove = board.getLastMove() >= 0 ? board.getLastMove()
+                : board.cellOf(board.getHeight() / 2, board.getWidth() / 2);
+
+        count = 0;
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (!board.isFree(cell)) {
+                continue;
+            }
+            if (board.wouldWin(cell, human)) {
+                rank[cell] = 0;
+            } else if (board.wouldWin(cell, Board.opponent(human))) {
+                rank[cell] = 1;
+            } else {
+                rank[cell] = 2 + Math.max(Math.abs(board.rowOf(cell) - board.rowOf(lastMove)),
+                        Math.abs(board.columnOf(cell) - board.columnOf(lastMove)));
+            }
+            cells[count++] = cell;
+        }
+
+        // Insercion: pocas casillas y solo se ordena una vez por turno
+        for (int i = 1; i < count; i++) {
+            int cell = cells[i];
+            int j = i - 1;
+            while (j >= 0 && rank[cells[j]] > rank[cell]) {
+                cells[j + 1] = cells[j];
+                j--;
+            }
+            cells[j + 1] = cell;
+        }
+        return Arrays.copyOf(cells, Math.min(count, MAX_CANDIDATES));
+    }
+
+    private ExecutorService worker() {
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "triqui-ponder");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return worker;
+    }
+}
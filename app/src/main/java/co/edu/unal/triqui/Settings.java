@@ -20,6 +20,11 @@ public class Settings extends PreferenceActivity{
         difficultyLevelPreferenceHandler(prefs);
         victoryMessagePreferenceHandler(prefs);
         soundPreferenceHandler(prefs);
+        boardSizePreferenceHandler(prefs);
+        aiDelayPreferenceHandler(prefs);
+        animationsPreferenceHandler(prefs);
+        ponderingPreferenceHandler(prefs);
+        metricsPreferenceHandler(prefs);
     }
 
     private void difficultyLevelPreferenceHandler(final SharedPreferences prefs){
@@ -36,7 +41,7 @@ public class Settings extends PreferenceActivity{
                 // Since we are handling the pref, we must save it
                 SharedPreferences.Editor ed = prefs.edit();
                 ed.putString("difficulty_level", newValue.toString());
-                ed.commit();
+                ed.apply();
                 return true;
             }
         });
@@ -58,7 +63,7 @@ public class Settings extends PreferenceActivity{
                 // Since we are handling the pref, we must save it
                 SharedPreferences.Editor ed = prefs.edit();
                 ed.putString("victory_message", newValue.toString());
-                ed.commit();
+                ed.apply();
                 return true;
             }
         });
@@ -74,9 +79,102 @@ public class Settings extends PreferenceActivity{
                 // Since we are handling the pref, we must save it
                 SharedPreferences.Editor ed = prefs.edit();
                 ed.putBoolean("sound", (Boolean) newValue);
-                ed.commit();
+                ed.apply();
                 return true;
             }
         });
     }
+
+    private void animationsPreferenceHandler(final SharedPreferences prefs){
+        final CheckBoxPreference animationsPref = (CheckBoxPreference) findPreference("animations");
+
+        animationsPref.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+            @Override
+            public boolean onPreferenceChange(Preference preference, Object newValue) {
+
+                // Since we are handling the pref, we must save it
+                SharedPreferences.Editor ed = prefs.edit();
+                ed.putBoolean("animations", (Boolean) newValue);
+                ed.apply();
+                return true;
+            }
+        });
+    }
+
+    private void ponderingPreferenceHandler(final SharedPreferences prefs){
+        final CheckBoxPreference ponderingPref = (CheckBoxPreference) findPreference("pondering");
+
+        ponderingPref.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+            @Override
+            public boolean onPreferenceChange(Preference preference, Object newValue) {
+
+                // Since we are handling the pref, we must save it
+                SharedPreferences.Editor ed = prefs.edit();
+                ed.putBoolean("pondering", (Boolean) newValue);
+                ed.apply();
+                return true;
+            }
+        });
+    }
+
+    private void metricsPreferenceHandler(final SharedPreferences prefs){
+        final CheckBoxPreference metricsPref = (CheckBoxPreference) findPreference("metrics");
+
+        metricsPref.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+            @Override
+            public boolean onPreferenceChange(Preference preference, Object newValue) {
+
+                // Since we are handling the pref, we must save it
+                SharedPreferences.Editor ed = prefs.edit();
+                ed.putBoolean("metrics", (Boolean) newValue);
+                ed.apply();
+                return true;
+            }
+        });
+    }
+
+    private void boardSizePreferenceHandler(final SharedPreferences prefs){
+        final ListPreference boardSizePref = (ListPreference) findPreference("board_size");
+        String boardSize = prefs.getString("board_size",
+                getResources().getString(R.string.board_size_default));
+        boardSizePref.setSummary(entryLabel(boardSizePref, boardSize));
+
+        boardSizePref.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+            @Override
+            public boolean onPreferenceChange(Preference preference, Object newValue) {
+                boardSizePref.setSummary(entryLabel(boardSizePref, newValue.toString()));
+
+                // Since we are handling the pref, we must save it
+                SharedPreferences.Editor ed = prefs.edit();
+                ed.putString("board_size", newValue.toString());
+                ed.apply();
+                return true;
+            }
+        });
+    }
+
+    private void aiDelayPreferenceHandler(final SharedPreferences prefs){
+        final ListPreference aiDelayPref = (ListPreference) findPreference("ai_delay");
+        String aiDelay = prefs.getString("ai_delay",
+                getResources().getString(R.string.ai_delay_default));
+        aiDelayPref.setSummary(entryLabel(aiDelayPref, aiDelay));
+
+        aiDelayPref.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+            @Override
+            public boolean onPreferenceChange(Preference preference, Object newValue) {
+                aiDelayPref.setSummary(entryLabel(aiDelayPref, newValue.toString()));
+
+                // Since we are handling the pref, we must save it
+                SharedPreferences.Editor ed = prefs.edit();
+                ed.putString("ai_delay", newValue.toString());
+                ed.apply();
+                return true;
+            }
+        });
+    }
+
+    private CharSequence entryLabel(ListPreference listPref, String value){
+        int index = listPref.findIndexOfValue(value);
+        return index >= 0 ? listPref.getEntries()[index] : value;
+    }
 }
@@ -0,0 +1,78 @@
+package co.edu.unal.triqui;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+
+import co.edu.unal.triqui.engine.Board;
+
+/**
+ * Move sounds played through a {@link SoundPool}. Clips are decoded once
+ * per process, asynchronously by the pool itself, so resuming the activity
+ * never waits on media preparation; overlapping moves mix instead of
+ * cutting each other off.
+ */
+class SoundEffects {
+    private static final int MAX_STREAMS = 4;
+
+    private static SoundEffects instance;
+
+    private final SoundPool soundPool;
+    private final int player1Sound;
+    private final int player2Sound;
+    private volatile boolean player1Loaded;
+    private volatile boolean player2Loaded;
+
+    static synchronized SoundEffects get(Context context) {
+        if (instance == null) {
+            instance = new SoundEffects(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private SoundEffects(Context context) {
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        soundPool = new SoundPool.Builder()
+                .setMaxStreams(MAX_STREAMS)
+                .setAudioAttributes(attributes)
+                .build();
+
+        soundPool.setOnLoadCompleteListener(new SoundPool.OnLoadCompleteListener() {
+            @Override
+            public void onLoadComplete(SoundPool pool, int sampleId, int status) {
+                if (status != 0) {
+                    return;
+                }
+                if (sampleId == player1Sound) {
+                    player1Loaded = true;
+                } else if (sampleId == player2Sound) {
+                    player2Loaded = true;
+                }
+            }
+        });
+
+        // load() returns at once; decoding happens on the pool's own thread
+        player1Sound = soundPool.load(context, R.raw.player1, 1);
+        player2Sound = soundPool.load(context, R.raw.player2, 1);
+    }
+
+    /** Plays the move sound for {@code player}; skipped if it is still loading. */
+    void play(int player) {
+        if (player == Board.FIRST && player1Loaded) {
+            soundPool.play(player1Sound, 1f, 1f, 1, 0, 1f);
+        } else if (player == Board.SECOND && player2Loaded) {
+            soundPool.play(player2Sound, 1f, 1f, 1, 0, 1f);
+        }
+    }
+
+    void pause() {
+        soundPool.autoPause();
+    }
+
+    void resume() {
+        soundPool.autoResume();
+    }
+}
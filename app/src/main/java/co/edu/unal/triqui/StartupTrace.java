@@ -0,0 +1,60 @@
+package co.edu.unal.triqui;
+
+import android.app.Activity;
+import android.os.Process;
+import android.os.SystemClock;
+
+/**
+ * Cold-start milestones, measured from the start of the process: the first
+ * frame of the board (time to first frame) and the moment the pieces are
+ * decoded and the engine is warm, so the first tap is answered at full
+ * speed (time to interactive). Both are kept in {@link Metrics}; the second
+ * is also reported to the system with {@link Activity#reportFullyDrawn()}.
+ *
+ * <p>Only the first launch of the process is traced: an activity recreated
+ * later finds the trace finished. Main thread only.
+ */
+final class StartupTrace {
+    static final int FIRST_FRAME = 1;
+    static final int PIECES = 2;
+    static final int ENGINE = 4;
+    private static final int INTERACTIVE = FIRST_FRAME | PIECES | ENGINE;
+
+    private static int reached;
+    private static Activity activity;
+
+    private StartupTrace() {
+    }
+
+    /** Activity to report the fully drawn state to, if the trace is still running. */
+    static void attach(Activity activity) {
+        if (reached != INTERACTIVE) {
+            StartupTrace.activity = activity;
+        }
+    }
+
+    static void detach(Activity activity) {
+        if (StartupTrace.activity == activity) {
+            StartupTrace.activity = null;
+        }
+    }
+
+    /** Records {@code milestone}; later calls for the same milestone are ignored. */
+    static void mark(int milestone) {
+        if ((reached & milestone) == milestone) {
+            return;
+        }
+        reached |= milestone;
+        long millis = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        if (milestone == FIRST_FRAME) {
+            Metrics.get().timeToFirstFrameMillis = millis;
+        }
+        if (reached == INTERACTIVE) {
+            Metrics.get().timeToInteractiveMillis = millis;
+            if (activity != null) {
+                activity.reportFullyDrawn();
+                activity = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package co.edu.unal.triqui;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import co.edu.unal.triqui.engine.Board;
+
+/**
+ * Board renderer that draws on its own thread through a {@link SurfaceView},
+ * so drawing keeps its pace while the main thread is busy. Pieces drop in
+ * with a short scale animation and a finished game gets a strike-through
+ * over the winning line. {@link GameBoard} sits on top of it to handle
+ * input and forwards every change through {@link BoardRenderer}.
+ */
+public class SurfaceBoardView extends SurfaceView implements SurfaceHolder.Callback, BoardRenderer {
+    private static final long DROP_MILLIS = 250;
+    private static final long STRIKE_MILLIS = 400;
+
+    private final Object lock = new Object();
+    private final Paint gridPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint strikePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint piecePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect pieceRect = new Rect();
+
+    /* Estado compartido con el hilo de dibujo, protegido por lock */
+    private int columns = Board.SIZE;
+    private int rows = Board.SIZE;
+    private byte[] cells = new byte[Board.CELLS];
+    private long[] placedAt = new long[Board.CELLS];
+    private int lineStart = -1;
+    private int lineEnd = -1;
+    private long wonAt;
+    private int surfaceWidth;
+    private int surfaceHeight;
+    private boolean dirty;
+
+    private RenderThread renderThread;
+
+    public SurfaceBoardView(Context context) {
+        super(context);
+        init();
+    }
+
+    public SurfaceBoardView(Context context, AttributeSet attributeSet) {
+        super(context, attributeSet);
+        init();
+    }
+
+    private void init() {
+        gridPaint.setColor(Color.BLACK);
+        gridPaint.setStrokeWidth(10);
+        strikePaint.setColor(Color.RED);
+        strikePaint.setStrokeWidth(16);
+        strikePaint.setStrokeCap(Paint.Cap.ROUND);
+
+        getHolder().addCallback(this);
+    }
+
+    @Override
+    public void onBoardReset(int width, int height, int[] values, int lineStart, int lineEnd) {
+        synchronized (lock) {
+            if (width != columns || height != rows) {
+                columns = width;
+                rows = height;
+                cells = new byte[width * height];
+                placedAt = new long[width * height];
+            }
+            for (int cell = 0; cell < cells.length; cell++) {
+                cells[cell] = (byte) values[cell];
+                placedAt[cell] = 0;
+            }
+            this.lineStart = lineStart;
+            this.lineEnd = lineEnd;
+            wonAt = 0;
+            requestFrameLocked();
+        }
+    }
+
+    @Override
+    public void onPiecePlaced(int cell, int player) {
+        synchronized (lock) {
+            cells[cell] = (byte) player;
+            placedAt[cell] = SystemClock.uptimeMillis();
+            requestFrameLocked();
+        }
+    }
+
+    @Override
+    public void onGameWon(int lineStart, int lineEnd) {
+        synchronized (lock) {
+            this.lineStart = lineStart;
+            this.lineEnd = lineEnd;
+            wonAt = SystemClock.uptimeMillis();
+            requestFrameLocked();
+        }
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        renderThread = new RenderThread(holder);
+        renderThread.start();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        synchronized (lock) {
+            surfaceWidth = width;
+            surfaceHeight = height;
+            requestFrameLocked();
+        }
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        RenderThread thread = renderThread;
+        renderThread = null;
+        if (thread == null) {
+            return;
+        }
+
+        // The surface is only valid until this returns, so wait for the thread
+        thread.quit();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void requestFrameLocked() {
+        dirty = true;
+        lock.notifyAll();
+    }
+
+    private class RenderThread extends Thread {
+        private final SurfaceHolder holder;
+        private volatile boolean running = true;
+
+        private Bitmap player1Scaled;
+        private Bitmap player2Scaled;
+
+        /* Copia del estado para el cuadro en curso: se dibuja sin tener el lock */
+        private int frameColumns;
+        private int frameRows;
+        private byte[] frameCells = new byte[0];
+        private long[] framePlacedAt = new long[0];
+        private int frameLineStart;
+        private int frameLineEnd;
+        private long frameWonAt;
+        private int frameWidth;
+        private int frameHeight;
+
+        RenderThread(SurfaceHolder holder) {
+            super("triqui-render");
+            this.holder = holder;
+        }
+
+        void quit() {
+            running = false;
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+
+            while (running) {
+                synchronized (lock) {
+                    // Sin animaciones pendientes no hay nada que dibujar: esperar
+                    while (running && !dirty) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (!running) {
+                        return;
+                    }
+                    dirty = false;
+                    copyStateLocked();
+                }
+
+                Canvas canvas = lockCanvas();
+                if (canvas == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                try {
+                    // El hilo principal no espera a que se dibuje ni a que se decodifiquen las fichas
+                    if (drawFrame(canvas, SystemClock.uptimeMillis())) {
+                        // Mientras haya animaciones en curso se pide otro cuadro
+                        synchronized (lock) {
+                            dirty = true;
+                        }
+                    }
+                    Metrics.get().frame.record(System.nanoTime() - start);
+                } finally {
+                    // Bloquea hasta que haya un buffer libre, lo que marca el ritmo de los cuadros
+                    unlockCanvasAndPost(canvas);
+                }
+            }
+        }
+
+        private Canvas lockCanvas() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                return holder.getSurface().lockHardwareCanvas();
+            }
+            return holder.lockCanvas();
+        }
+
+        private void unlockCanvasAndPost(Canvas canvas) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                holder.getSurface().unlockCanvasAndPost(canvas);
+            } else {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+
+        private void copyStateLocked() {
+            if (frameCells.length != cells.length) {
+                frameCells = new byte[cells.length];
+                framePlacedAt = new long[cells.length];
+            }
+            System.arraycopy(cells, 0, frameCells, 0, cells.length);
+            System.arraycopy(placedAt, 0, framePlacedAt, 0, placedAt.length);
+            frameColumns = columns;
+            frameRows = rows;
+            frameLineStart = lineStart;
+            frameLineEnd = lineEnd;
+            frameWonAt = wonAt;
+            frameWidth = surfaceWidth;
+            frameHeight = surfaceHeight;
+        }
+
+        /** Draws a full frame from the copied state and returns true if an animation is still running. */
+        private boolean drawFrame(Canvas canvas, long now) {
+            int columns = frameColumns;
+            int boxWidth = frameWidth / columns;
+            int boxHeight = frameHeight / frameRows;
+            boolean animating = false;
+
+            canvas.drawColor(Color.WHITE);
+            if (boxWidth <= 0 || boxHeight <= 0) {
+                return false;
+            }
+
+            for (int line = 1; line < columns; line++) {
+                canvas.drawLine(boxWidth * line, 0, boxWidth * line, frameHeight, gridPaint);
+            }
+            for (int line = 1; line < frameRows; line++) {
+                canvas.drawLine(0, boxHeight * line, frameWidth, boxHeight * line, gridPaint);
+            }
+
+            if (player1Scaled == null || player1Scaled.getWidth() != boxWidth
+                    || player1Scaled.getHeight() != boxHeight) {
+                player1Scaled = BitmapCache.get(getResources(), R.drawable.player1, boxWidth, boxHeight);
+                player2Scaled = BitmapCache.get(getResources(), R.drawable.player2, boxWidth, boxHeight);
+            }
+
+            for (int cell = 0; cell < frameCells.length; cell++) {
+                if (frameCells[cell] == Board.FREE) {
+                    continue;
+                }
+                int left = (cell % columns) * boxWidth;
+                int top = (cell / columns) * boxHeight;
+                Bitmap piece = frameCells[cell] == Board.FIRST ? player1Scaled : player2Scaled;
+
+                float progress = progress(framePlacedAt[cell], DROP_MILLIS, now);
+                if (progress >= 1f) {
+                    canvas.drawBitmap(piece, left, top, null);
+                } else {
+                    animating = true;
+                    // Ease-out: crece rapido al principio y se asienta al final
+                    float scale = 1f - (1f - progress) * (1f - progress);
+                    int insetX = (int) (boxWidth * (1f - scale) / 2);
+                    int insetY = (int) (boxHeight * (1f - scale) / 2);
+                    pieceRect.set(left + insetX, top + insetY,
+                            left + boxWidth - insetX, top + boxHeight - insetY);
+                    piecePaint.setAlpha((int) (255 * progress));
+                    canvas.drawBitmap(piece, null, pieceRect, piecePaint);
+                }
+            }
+
+            if (frameLineStart >= 0 && frameLineEnd >= 0) {
+                float startX = (frameLineStart % columns) * boxWidth + boxWidth / 2f;
+                float startY = (frameLineStart / columns) * boxHeight + boxHeight / 2f;
+                float endX = (frameLineEnd % columns) * boxWidth + boxWidth / 2f;
+                float endY = (frameLineEnd / columns) * boxHeight + boxHeight / 2f;
+                float progress = progress(frameWonAt, STRIKE_MILLIS, now);
+                animating |= progress < 1f;
+                canvas.drawLine(startX, startY,
+                        startX + (endX - startX) * progress,
+                        startY + (endY - startY) * progress, strikePaint);
+            }
+
+            return animating;
+        }
+
+        private float progress(long startedAt, long duration, long now) {
+            if (startedAt == 0) {
+                return 1f;
+            }
+            return Math.min(1f, (now - startedAt) / (float) duration);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package co.edu.unal.triqui.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.Board;
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/**
+ * Cost of the classic 3x3 bitboard lookups behind validateWin() and the
+ * one-ply winning-move scan. Only 3x3 has a bitboard, so there is no size
+ * parameter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClassicWinDetectionBenchmark {
+    @Param({"EMPTY", "MIDGAME", "NEAR_TERMINAL"})
+    public Positions.Phase phase;
+
+    private Board classic;
+    private int player;
+
+    @Setup
+    public void setUp() {
+        MnkBoard board = Positions.create("3,3,3", phase, 42);
+        classic = board.toClassic();
+        player = Positions.sideToMove(board);
+    }
+
+    @Benchmark
+    public int status() {
+        return classic.status();
+    }
+
+    @Benchmark
+    public int findWinningCell() {
+        return classic.findWinningCell(player);
+    }
+}
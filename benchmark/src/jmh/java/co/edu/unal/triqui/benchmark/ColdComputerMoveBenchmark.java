@@ -0,0 +1,64 @@
+package co.edu.unal.triqui.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.ComputerPlayer;
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/**
+ * First move of a fresh {@link ComputerPlayer}: no position cache entries,
+ * search tables not yet allocated. Each iteration builds a new player and
+ * times a single call, since timing many calls would measure the warm
+ * player of {@link ComputerMoveBenchmark} instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColdComputerMoveBenchmark {
+    @Param({"Easy", "Harder", "Expert", "Unbeatable"})
+    public DifficultyLevel level;
+
+    @Param({"3,3,3", "7,7,5", "15,15,5"})
+    public String size;
+
+    @Param({"EMPTY", "MIDGAME", "NEAR_TERMINAL"})
+    public Positions.Phase phase;
+
+    private ComputerPlayer computerPlayer;
+    private MnkBoard board;
+    private int player;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        board = Positions.create(size, phase, 42);
+        player = Positions.sideToMove(board);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws IOException {
+        computerPlayer = ComputerMoveBenchmark.newPlayer(board, level);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() {
+        computerPlayer.shutdown();
+    }
+
+    @Benchmark
+    public int chooseMove() {
+        return computerPlayer.chooseMove(board, player, level);
+    }
+}
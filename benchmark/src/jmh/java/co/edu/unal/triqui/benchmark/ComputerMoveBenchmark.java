@@ -0,0 +1,99 @@
+package co.edu.unal.triqui.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.ComputerPlayer;
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.MctsSearch;
+import co.edu.unal.triqui.engine.MnkBoard;
+import co.edu.unal.triqui.engine.PositionCache;
+import co.edu.unal.triqui.engine.SolvedTable;
+import co.edu.unal.triqui.engine.SolvedTableGenerator;
+
+/**
+ * Time for the computer to pick a move at each difficulty level, the work
+ * GameBoard hands to its AI worker, once the player has already searched
+ * the position: the steady state of a game in progress. The first move
+ * of a fresh player is in {@link ColdComputerMoveBenchmark}.
+ *
+ * <p>Expert and Unbeatable on the large boards end in MCTS, which runs for
+ * a wall-clock budget. Those cells use a short fixed budget on one thread
+ * and drop the tree before each move, so they measure the forcing-move
+ * searches plus a bounded MCTS instead of the app's budget. The MCTS
+ * playout rate is in {@link MctsPlayoutBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ComputerMoveBenchmark {
+    @Param({"Easy", "Harder", "Expert", "Unbeatable"})
+    public DifficultyLevel level;
+
+    @Param({"3,3,3", "7,7,5", "15,15,5"})
+    public String size;
+
+    @Param({"EMPTY", "MIDGAME", "NEAR_TERMINAL"})
+    public Positions.Phase phase;
+
+    /* Presupuesto de MCTS fijo y corto, con un hilo, para que el tiempo no sea el del reloj de la app */
+    static final long MCTS_BUDGET_MILLIS = 20;
+
+    private static SolvedTable solvedTable;
+
+    private ComputerPlayer computerPlayer;
+    private MnkBoard board;
+    private int player;
+
+    @Setup
+    public void setUp() throws IOException {
+        board = Positions.create(size, phase, 42);
+        player = Positions.sideToMove(board);
+        computerPlayer = newPlayer(board, level);
+    }
+
+    @TearDown
+    public void tearDown() {
+        computerPlayer.shutdown();
+    }
+
+    @Benchmark
+    public int chooseMove() {
+        MctsSearch search = computerPlayer.getMctsSearch();
+        if (search != null) {
+            // Soltar la raiz no cuesta nada frente al presupuesto de la busqueda
+            search.reset();
+        }
+        return computerPlayer.chooseMove(board, player, level);
+    }
+
+    /** Player as GameBoard sets it up, with a private position cache and the benchmark's MCTS budget. */
+    static ComputerPlayer newPlayer(MnkBoard board, DifficultyLevel level) throws IOException {
+        ComputerPlayer computerPlayer = new ComputerPlayer(new Random(7));
+        computerPlayer.setSolvedTable(solvedTable());
+        computerPlayer.setPositionCache(new PositionCache(PositionCache.DEFAULT_CAPACITY));
+        if (ComputerPlayer.usesMcts(board, level)) {
+            computerPlayer.setMctsBudget(MCTS_BUDGET_MILLIS, 1);
+        }
+        return computerPlayer;
+    }
+
+    private static synchronized SolvedTable solvedTable() throws IOException {
+        if (solvedTable == null) {
+            solvedTable = SolvedTable.load(new ByteArrayInputStream(SolvedTableGenerator.generate()));
+        }
+        return solvedTable;
+    }
+}
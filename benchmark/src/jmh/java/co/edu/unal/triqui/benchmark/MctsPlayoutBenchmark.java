@@ -0,0 +1,74 @@
+package co.edu.unal.triqui.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.MctsSearch;
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/**
+ * MCTS playouts per second on one thread. The search runs on a wall-clock
+ * budget, so its time per move is fixed by design; the figure to compare
+ * between builds is the {@code playouts} counter, which JMH reports per
+ * second next to the primary score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MctsPlayoutBenchmark {
+    /* Presupuesto corto y fijo: muchas busquedas por iteracion */
+    private static final long BUDGET_MILLIS = 20;
+
+    @Param({"7,7,5", "15,15,5"})
+    public String size;
+
+    @Param({"EMPTY", "MIDGAME", "NEAR_TERMINAL"})
+    public Positions.Phase phase;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long playouts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            playouts = 0;
+        }
+    }
+
+    private MctsSearch search;
+    private MnkBoard board;
+    private int player;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        board = Positions.create(size, phase, 42);
+        player = Positions.sideToMove(board);
+        search = new MctsSearch(1, 7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        search.shutdown();
+    }
+
+    @Benchmark
+    public int search(Counters counters) {
+        // Sin reutilizar el arbol de la busqueda anterior; soltar la raiz no cuesta nada frente al presupuesto
+        search.reset();
+        int move = search.bestMove(board, player, BUDGET_MILLIS);
+        counters.playouts += search.getPlayouts();
+        return move;
+    }
+}
@@ -0,0 +1,76 @@
+package co.edu.unal.triqui.benchmark;
+
+import java.util.Random;
+
+import co.edu.unal.triqui.engine.Board;
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/**
+ * Reproducible benchmark positions: a seeded random game stopped after a
+ * number of plies that depends on the requested phase, never at a finished
+ * game.
+ */
+final class Positions {
+    enum Phase {
+        EMPTY,
+        MIDGAME,
+        NEAR_TERMINAL
+    }
+
+    private Positions() {
+    }
+
+    /** Parses the "width,height,winLength" format used by the board size setting. */
+    static MnkBoard emptyBoard(String size) {
+        String[] parts = size.split(",");
+        return new MnkBoard(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                Integer.parseInt(parts[2]));
+    }
+
+    static MnkBoard create(String size, Phase phase, long seed) {
+        MnkBoard board = emptyBoard(size);
+        int cells = board.getCellCount();
+        int plies;
+        switch (phase) {
+            case MIDGAME:
+                plies = Math.max(2, cells * 3 / 10);
+                break;
+            case NEAR_TERMINAL:
+                plies = Math.max(cells * 6 / 10, cells - 3);
+                break;
+            default:
+                plies = 0;
+                break;
+        }
+
+        Random random = new Random(seed);
+        int player = Board.FIRST;
+        int attempts = 0;
+        while (board.getMoveCount() < plies && attempts < cells * 20) {
+            attempts++;
+            int cell = random.nextInt(cells);
+            if (!board.isFree(cell)) {
+                continue;
+            }
+            if (board.play(cell, player) != Board.UNFINISHED) {
+                board.undo(cell);
+                continue;
+            }
+            player = Board.opponent(player);
+        }
+        return board;
+    }
+
+    static int sideToMove(MnkBoard board) {
+        return board.getMoveCount() % 2 == 0 ? Board.FIRST : Board.SECOND;
+    }
+
+    static int firstFreeCell(MnkBoard board) {
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (board.isFree(cell)) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+}
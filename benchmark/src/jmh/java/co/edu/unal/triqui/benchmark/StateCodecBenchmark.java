@@ -0,0 +1,57 @@
+package co.edu.unal.triqui.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.MnkBoard;
+import co.edu.unal.triqui.engine.SolvedTable;
+
+/**
+ * The getBoardState()/setBoardState() round trip used to save and restore
+ * the game, plus the base-3 encoding of the classic board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StateCodecBenchmark {
+    @Param({"3,3,3", "7,7,5", "15,15,5"})
+    public String size;
+
+    @Param({"EMPTY", "MIDGAME", "NEAR_TERMINAL"})
+    public Positions.Phase phase;
+
+    private MnkBoard board;
+    private MnkBoard target;
+    private int[] state;
+
+    @Setup
+    public void setUp() {
+        board = Positions.create(size, phase, 42);
+        target = Positions.emptyBoard(size);
+        state = board.getCells();
+    }
+
+    @Benchmark
+    public int[] getBoardState() {
+        return board.getCells();
+    }
+
+    @Benchmark
+    public MnkBoard setBoardState() {
+        target.setCells(state);
+        return target;
+    }
+
+    @Benchmark
+    public int encodeClassic() {
+        return board.isClassic() ? SolvedTable.encode(board.toClassic()) : 0;
+    }
+}
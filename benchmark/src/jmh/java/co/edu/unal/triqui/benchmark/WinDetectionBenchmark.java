@@ -0,0 +1,53 @@
+package co.edu.unal.triqui.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/**
+ * Cost of the validateWin() path: the incremental check done when a stone
+ * is placed and the one-ply winning-move scan. The classic bitboard lookup
+ * only exists for 3x3 and is in {@link ClassicWinDetectionBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WinDetectionBenchmark {
+    @Param({"3,3,3", "7,7,5", "15,15,5"})
+    public String size;
+
+    @Param({"EMPTY", "MIDGAME", "NEAR_TERMINAL"})
+    public Positions.Phase phase;
+
+    private MnkBoard board;
+    private int cell;
+    private int player;
+
+    @Setup
+    public void setUp() {
+        board = Positions.create(size, phase, 42);
+        cell = Positions.firstFreeCell(board);
+        player = Positions.sideToMove(board);
+    }
+
+    @Benchmark
+    public int playAndUndo() {
+        int status = board.play(cell, player);
+        board.undo(cell);
+        return status;
+    }
+
+    @Benchmark
+    public int findWinningCell() {
+        return board.findWinningCell(player);
+    }
+}
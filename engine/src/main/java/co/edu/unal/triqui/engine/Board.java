@@ -0,0 +1,149 @@
+package co.edu.unal.triqui.engine;
+
+/**
+ * 3x3 position stored as two 9-bit occupancy masks, one per player.
+ * Cell {@code i} maps to bit {@code i}, with cells numbered row by row.
+ */
+public final class Board {
+    public static final int SIZE = 3;
+    public static final int CELLS = SIZE * SIZE;
+    public static final int FULL = (1 << CELLS) - 1;
+
+    public static final int FREE = 0;
+    public static final int FIRST = 1;
+    public static final int SECOND = 2;
+
+    public static final int UNFINISHED = 0;
+    public static final int WON = 1;
+    public static final int DRAW_GAME = 2;
+
+    /* Filas, columnas y diagonales */
+    static final int[] LINES = {
+            0x007, 0x038, 0x1C0,
+            0x049, 0x092, 0x124,
+            0x111, 0x054
+    };
+
+    /* WINNING[mask] es verdadero si la mascara contiene alguna linea completa */
+    private static final boolean[] WINNING = new boolean[FULL + 1];
+
+    static {
+        for (int mask = 0; mask <= FULL; mask++) {
+            for (int line : LINES) {
+                if ((mask & line) == line) {
+                    WINNING[mask] = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    private int first;
+    private int second;
+
+    public Board() {
+    }
+
+    public Board(int first, int second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public static boolean isWinning(int mask) {
+        return WINNING[mask];
+    }
+
+    public static int opponent(int player) {
+        return player == FIRST ? SECOND : FIRST;
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public int getSecond() {
+        return second;
+    }
+
+    public int mask(int player) {
+        return player == FIRST ? first : second;
+    }
+
+    public int occupied() {
+        return first | second;
+    }
+
+    public int freeCells() {
+        return ~(first | second) & FULL;
+    }
+
+    public boolean isFree(int cell) {
+        return ((first | second) & (1 << cell)) == 0;
+    }
+
+    public int get(int cell) {
+        int bit = 1 << cell;
+        if ((first & bit) != 0) {
+            return FIRST;
+        }
+        if ((second & bit) != 0) {
+            return SECOND;
+        }
+        return FREE;
+    }
+
+    public void set(int cell, int player) {
+        int bit = 1 << cell;
+        first &= ~bit;
+        second &= ~bit;
+        if (player == FIRST) {
+            first |= bit;
+        } else if (player == SECOND) {
+            second |= bit;
+        }
+    }
+
+    public void clear() {
+        first = 0;
+        second = 0;
+    }
+
+    public boolean hasWon(int player) {
+        return WINNING[mask(player)];
+    }
+
+    /** Returns true if {@code player} would complete a line by taking {@code cell}. */
+    public boolean wouldWin(int cell, int player) {
+        return WINNING[mask(player) | (1 << cell)];
+    }
+
+    /**
+     * Returns the last free cell (in cell order) that completes a line for
+     * {@code player}, or -1 if there is none.
+     */
+    public int findWinningCell(int player) {
+        int own = mask(player);
+        int free = freeCells();
+        int found = -1;
+
+        while (free != 0) {
+            int bit = free & -free;
+            free ^= bit;
+            if (WINNING[own | bit]) {
+                found = Integer.numberOfTrailingZeros(bit);
+            }
+        }
+
+        return found;
+    }
+
+    public int status() {
+        if (WINNING[first] || WINNING[second]) {
+            return WON;
+        }
+        if ((first | second) == FULL) {
+            return DRAW_GAME;
+        }
+        return UNFINISHED;
+    }
+}
@@ -0,0 +1,319 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.Random;
+
+/**
+ * Picks the computer's move for each {@link DifficultyLevel}. Instances
+ * keep per-level search state and are meant to be used from one thread at
+ * a time, typically the AI worker.
+ */
+public final class ComputerPlayer {
+    /* Nodos maximos por jugada; suficiente para resolver el tablero completo */
+    public static final long SEARCH_NODE_BUDGET = 50000;
+    /* Casillas libres desde las que Unbeatable intenta resolver un tablero grande hasta el final */
+    public static final int ENDGAME_EMPTIES = 16;
+    /* Nodos por intento; si no alcanzan se juega con MCTS y la tabla queda para la siguiente */
+    public static final long ENDGAME_NODE_BUDGET = 1000000;
+
+    private final Random random;
+
+    // Harder looks one ply ahead (take a win), Expert two (also block).
+    private final NegamaxSearch harderSearch = new NegamaxSearch(1, SEARCH_NODE_BUDGET);
+    private final NegamaxSearch expertSearch = new NegamaxSearch(2, SEARCH_NODE_BUDGET);
+    private NegamaxSearch perfectSearch;
+    private ThreatSearch threatSearch;
+    private volatile SolvedTable solvedTable;
+    private volatile OpeningBook openingBook;
+
+    /* El cache compartido se crea en el primer uso, no al construir: puede ser en el hilo principal */
+    private volatile PositionCache positionCache;
+    private volatile MctsSearch mctsSearch;
+    private volatile EndgameSolver endgameSolver;
+    /* False si el solucionador vino de setEndgameSolver: no se reemplaza ni se apaga aqui */
+    private volatile boolean ownsEndgameSolver = true;
+    private long mctsBudgetMillis = MctsSearch.DEFAULT_BUDGET_MILLIS;
+    private int mctsThreads = Runtime.getRuntime().availableProcessors();
+    /* Nodos (o simulaciones de MCTS) que costo la ultima jugada */
+    private volatile long lastNodes;
+
+    public ComputerPlayer(Random random) {
+        this.random = random;
+    }
+
+    public SolvedTable getSolvedTable() {
+        return solvedTable;
+    }
+
+    public void setSolvedTable(SolvedTable solvedTable) {
+        this.solvedTable = solvedTable;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    public PositionCache getPositionCache() {
+        PositionCache cache = positionCache;
+        if (cache == null) {
+            cache = PositionCache.getShared();
+            positionCache = cache;
+        }
+        return cache;
+    }
+
+    /** Replaces the shared position cache, e.g. with a private one in tests or tools. */
+    public void setPositionCache(PositionCache positionCache) {
+        this.positionCache = positionCache;
+    }
+
+    /**
+     * Think time and worker count for MCTS on larger boards, so slower
+     * devices can trade strength for speed.
+     */
+    public void setMctsBudget(long budgetMillis, int threads) {
+        if (mctsSearch != null && mctsSearch.getThreads() != threads) {
+            mctsSearch.shutdown();
+            mctsSearch = null;
+        }
+        if (endgameSolver != null && ownsEndgameSolver && endgameSolver.getThreads() != threads) {
+            endgameSolver.shutdown();
+            endgameSolver = null;
+        }
+        mctsBudgetMillis = budgetMillis;
+        mctsThreads = threads;
+    }
+
+    /**
+     * Solves endgames with {@code solver}, typically one from
+     * {@link EndgameSolver#newShared()} so that players share a pool and
+     * table instead of creating their own. The player cancels it on
+     * {@link #shutdown()} but does not shut it down. With null the player
+     * goes back to a private solver, created on first use.
+     */
+    public void setEndgameSolver(EndgameSolver solver) {
+        EndgameSolver previous = endgameSolver;
+        if (previous != null && ownsEndgameSolver) {
+            previous.shutdown();
+        }
+        ownsEndgameSolver = solver == null;
+        endgameSolver = solver;
+    }
+
+    /** The MCTS engine, or null if no large-board move has been searched yet. */
+    public MctsSearch getMctsSearch() {
+        return mctsSearch;
+    }
+
+    /** Stops the MCTS and endgame workers; the player can still be used afterwards. */
+    public void shutdown() {
+        MctsSearch search = mctsSearch;
+        mctsSearch = null;
+        if (search != null) {
+            search.shutdown();
+        }
+        EndgameSolver solver = endgameSolver;
+        if (solver == null) {
+            return;
+        }
+        if (ownsEndgameSolver) {
+            endgameSolver = null;
+            solver.shutdown();
+        } else {
+            solver.cancel();
+        }
+    }
+
+    /**
+     * Positions searched for the last {@link #chooseMove}: search nodes,
+     * plus playouts for MCTS. Zero when the move came from a table, the
+     * book or a cache.
+     */
+    public long getLastNodes() {
+        return lastNodes;
+    }
+
+    /** Returns the cell {@code player} should take, or -1 if the board is full. */
+    public int chooseMove(MnkBoard board, int player, DifficultyLevel level) {
+        int cell = -1;
+        lastNodes = 0;
+
+        if (level == DifficultyLevel.Easy)
+            cell = randomMove(board);
+        else if (!board.isClassic()) {
+            // Exhaustive search only covers 3x3; on larger boards try to
+            // win and, above Harder, block, play from the opening book, look
+            // for a forcing win and then run MCTS. Unbeatable first tries to
+            // solve the rest of the game once it is short.
+            cell = winningMove(board, player);
+            if (cell < 0 && level != DifficultyLevel.Harder)
+                cell = blockingMove(board, player);
+            if (cell < 0 && usesMcts(board, level))
+                cell = bookMove(board);
+            if (cell < 0 && usesMcts(board, level))
+                cell = threatMove(board, player);
+            if (cell < 0 && level == DifficultyLevel.Unbeatable
+                    && board.getCellCount() - board.getMoveCount() <= ENDGAME_EMPTIES)
+                cell = endgameMove(board, player);
+            if (cell < 0 && usesMcts(board, level))
+                cell = mctsMove(board, player);
+        } else if (level == DifficultyLevel.Harder)
+            cell = searchMove(harderSearch, board, player);
+        else if (level == DifficultyLevel.Expert)
+            cell = searchMove(expertSearch, board, player);
+        else if (level == DifficultyLevel.Unbeatable) {
+            // Perfect play from the solved table; if it is not available,
+            // run the search to the end of the game.
+            cell = perfectMove(board);
+            if (cell < 0)
+                cell = perfectSearchMove(board, player);
+        }
+
+        if (cell < 0)
+            cell = randomMove(board);
+
+        return cell;
+    }
+
+    /** True if moves for {@code level} on {@code board} come from a timed MCTS search. */
+    public static boolean usesMcts(MnkBoard board, DifficultyLevel level) {
+        return !board.isClassic()
+                && (level == DifficultyLevel.Expert || level == DifficultyLevel.Unbeatable);
+    }
+
+    public int randomMove(MnkBoard board) {
+        int free = board.getCellCount() - board.getMoveCount();
+        if (free <= 0) {
+            return -1;
+        }
+
+        // Pick the n-th free cell so that crowded large boards do not retry forever
+        int target = random.nextInt(free);
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (board.isFree(cell) && target-- == 0) {
+                return cell;
+            }
+        }
+
+        return -1;
+    }
+
+    public int winningMove(MnkBoard board, int player) {
+        PositionCache cache = getPositionCache();
+        int cell = cache.get(board, player, PositionCache.WINNING_MOVE);
+        if (cell == PositionCache.MISS) {
+            cell = board.findWinningCell(player);
+            cache.put(board, player, PositionCache.WINNING_MOVE, cell);
+        }
+        return noneToMinusOne(cell);
+    }
+
+    public int blockingMove(MnkBoard board, int player) {
+        PositionCache cache = getPositionCache();
+        int cell = cache.get(board, player, PositionCache.BLOCKING_MOVE);
+        if (cell == PositionCache.MISS) {
+            cell = board.findWinningCell(Board.opponent(player));
+            cache.put(board, player, PositionCache.BLOCKING_MOVE, cell);
+        }
+        return noneToMinusOne(cell);
+    }
+
+    /** Best classic move from the solved table, or -1 if there is no table. */
+    public int perfectMove(MnkBoard board) {
+        SolvedTable table = solvedTable;
+        if (table == null || !board.isClassic()) {
+            return -1;
+        }
+        return table.bestMove(board.toClassic());
+    }
+
+    /** Move from the opening book, or -1 if there is no book or the position is not in it. */
+    public int bookMove(MnkBoard board) {
+        OpeningBook book = openingBook;
+        if (book == null) {
+            return -1;
+        }
+        return book.probe(board);
+    }
+
+    /** Full-depth search, used for Unbeatable when the solved table is missing. */
+    public int perfectSearchMove(MnkBoard board, int player) {
+        PositionCache cache = getPositionCache();
+        int cell = cache.get(board, player, PositionCache.PERFECT_MOVE);
+        if (cell == PositionCache.MISS) {
+            if (perfectSearch == null)
+                perfectSearch = new NegamaxSearch(NegamaxSearch.FULL_DEPTH, SEARCH_NODE_BUDGET);
+            cell = searchMove(perfectSearch, board, player);
+            // Solo si la busqueda llego al final de la partida dentro del presupuesto
+            if (perfectSearch.getCompletedDepth() >= board.getCellCount() - board.getMoveCount())
+                cache.put(board, player, PositionCache.PERFECT_MOVE, cell);
+        }
+        return cell;
+    }
+
+    /** First move of a sequence of fours and open threes that wins by force, or -1. */
+    public int threatMove(MnkBoard board, int player) {
+        PositionCache cache = getPositionCache();
+        int cell = cache.get(board, player, PositionCache.THREAT_MOVE);
+        if (cell == PositionCache.MISS) {
+            if (threatSearch == null)
+                threatSearch = new ThreatSearch(ThreatSearch.DEFAULT_MAX_THREATS, ThreatSearch.DEFAULT_NODE_BUDGET);
+            cell = threatSearch.findWin(board, player);
+            lastNodes += threatSearch.getNodes();
+            cache.put(board, player, PositionCache.THREAT_MOVE, cell);
+        }
+        return noneToMinusOne(cell);
+    }
+
+    /** Proven best move from the endgame solver, or -1 if it ran out of budget. */
+    public int endgameMove(MnkBoard board, int player) {
+        PositionCache cache = getPositionCache();
+        int cell = cache.get(board, player, PositionCache.ENDGAME_MOVE);
+        if (cell != PositionCache.MISS) {
+            return cell;
+        }
+
+        EndgameSolver solver = endgameSolver;
+        if (solver == null) {
+            solver = new EndgameSolver(mctsThreads);
+            endgameSolver = solver;
+        }
+        EndgameSolver.Result result = solver.solve(board, player, ENDGAME_NODE_BUDGET);
+        lastNodes += result.nodes;
+        if (!result.complete) {
+            return -1;
+        }
+        cache.put(board, player, PositionCache.ENDGAME_MOVE, result.bestMove);
+        return result.bestMove;
+    }
+
+    /**
+     * Timed MCTS move. It is not cached: the search is randomized and
+     * bounded by the clock, so a stored reply would be replayed in every
+     * later game from the same position.
+     */
+    public int mctsMove(MnkBoard board, int player) {
+        MctsSearch search = mctsSearch;
+        if (search == null) {
+            search = new MctsSearch(mctsThreads, random.nextLong());
+            mctsSearch = search;
+        }
+        int cell = search.bestMove(board, player, mctsBudgetMillis);
+        lastNodes += search.getPlayouts();
+        return cell;
+    }
+
+    /* El cache guarda "sin jugada" como NO_MOVE para distinguirlo de un fallo */
+    private static int noneToMinusOne(int cell) {
+        return cell == PositionCache.NO_MOVE ? -1 : cell;
+    }
+
+    public int searchMove(NegamaxSearch search, MnkBoard board, int player) {
+        int cell = search.bestMove(board.toClassic(), player, random);
+        lastNodes += search.getNodes();
+        return cell;
+    }
+}
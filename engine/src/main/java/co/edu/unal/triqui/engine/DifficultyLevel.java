@@ -0,0 +1,8 @@
+package co.edu.unal.triqui.engine;
+
+public enum DifficultyLevel {
+    Easy,
+    Harder,
+    Expert,
+    Unbeatable
+}
@@ -0,0 +1,412 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exact win/draw/loss solver for positions on any {@link MnkBoard},
+ * meant for the middle and end of games on boards too large for the
+ * 3x3 table. It is an alpha-beta negamax over the values -1, 0 and 1 that
+ * splits the tree across a {@link ForkJoinPool} (young brothers wait: the
+ * first move of a node is searched alone, the rest in parallel with its
+ * bound) and shares results between workers through a lock-free
+ * {@link TranspositionTable}.
+ *
+ * <p>A node budget keeps a solve from running away on a position that is
+ * still too open; the result then says it is incomplete.
+ */
+public final class EndgameSolver {
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+
+    /** Entries of the default table: 4 MB. */
+    public static final int DEFAULT_TABLE_ENTRIES = 1 << 18;
+
+    /* Por debajo de estas casillas libres un nodo no se reparte: no compensa crear tareas */
+    private static final int SEQUENTIAL_EMPTIES = 8;
+    /* Nodos que cuenta cada tarea antes de publicarlos y mirar si debe parar */
+    private static final int CHECK_INTERVAL = 1024;
+    /* Distingue en la clave quien mueve; el hash del tablero solo describe las fichas */
+    private static final long SECOND_TO_MOVE = 0x6A09E667F3BCC909L;
+
+    /** Outcome of {@link #solve}; {@code value} is from the point of view of the side to move. */
+    public static final class Result {
+        public final int value;
+        public final int bestMove;
+        public final long nodes;
+        /* False si se agoto el presupuesto o se cancelo: value y bestMove no valen */
+        public final boolean complete;
+
+        Result(int value, int bestMove, long nodes, boolean complete) {
+            this.value = value;
+            this.bestMove = bestMove;
+            this.nodes = nodes;
+            this.complete = complete;
+        }
+    }
+
+    /* Pool y tabla del proceso, creados en el primer newShared() */
+    private static ForkJoinPool sharedPool;
+    private static TranspositionTable sharedTable;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final TranspositionTable table;
+
+    private final AtomicLong nodes = new AtomicLong();
+    private volatile long nodeBudget;
+    private volatile boolean stopped;
+    /* Hilo que llamo a solve: si lo interrumpen, la busqueda para como con cancel() */
+    private volatile Thread caller;
+    /* Orden estatico de casillas del tablero en curso: del centro hacia afuera */
+    private volatile int[] centreOrder;
+
+    /** Solver with its own pool of {@code threads} workers and a table of the default size. */
+    public EndgameSolver(int threads) {
+        this(new ForkJoinPool(threads), true, new TranspositionTable(DEFAULT_TABLE_ENTRIES));
+    }
+
+    /** Solver on a caller-owned pool and table; {@link #shutdown()} leaves the pool alone. */
+    public EndgameSolver(ForkJoinPool pool, TranspositionTable table) {
+        this(pool, false, table);
+    }
+
+    private EndgameSolver(ForkJoinPool pool, boolean ownsPool, TranspositionTable table) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.table = table;
+    }
+
+    /**
+     * Solver on the process-wide pool (one worker per core) and table of
+     * the default size, so any number of players costs one pool and 4 MB.
+     * A solver runs one solve at a time, hence a new one per player; the
+     * hash depends on the board size, so one table serves every board.
+     */
+    public static synchronized EndgameSolver newShared() {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            sharedTable = new TranspositionTable(DEFAULT_TABLE_ENTRIES);
+        }
+        return new EndgameSolver(sharedPool, sharedTable);
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Solves the position with {@code player} to move, visiting at most
+     * {@code nodeBudget} nodes. Results of earlier solves stay in the table,
+     * so solving the positions of one game in order gets cheaper each move.
+     */
+    public Result solve(MnkBoard board, int player, long nodeBudget) {
+        if (board.status() != Board.UNFINISHED) {
+            throw new IllegalArgumentException("The game is over");
+        }
+        nodes.set(0);
+        this.nodeBudget = nodeBudget;
+        stopped = false;
+        caller = Thread.currentThread();
+        centreOrder = centreOrder(board.getWidth(), board.getHeight());
+
+        SolveTask root = new SolveTask(new MnkBoard(board), player, LOSS, WIN, null, true);
+        int value = pool.invoke(root);
+        boolean complete = !stopped && !root.aborted;
+        return new Result(value, root.bestMove, nodes.get(), complete);
+    }
+
+    /**
+     * Stops the running solve as soon as possible; it returns an incomplete
+     * result. Interrupting the thread that called {@link #solve} does the same.
+     */
+    public void cancel() {
+        stopped = true;
+    }
+
+    public void shutdown() {
+        stopped = true;
+        if (ownsPool) {
+            pool.shutdownNow();
+        }
+    }
+
+    private long keyOf(MnkBoard board, int player) {
+        return player == Board.SECOND ? board.getHash() ^ SECOND_TO_MOVE : board.getHash();
+    }
+
+    /** Point where a node's later moves were handed to other workers; a cutoff there stops them. */
+    private static final class Split {
+        final Split parent;
+        volatile boolean cutoff;
+
+        Split(Split parent) {
+            this.parent = parent;
+        }
+    }
+
+    private final class SolveTask extends RecursiveTask<Integer> {
+        private final MnkBoard board;
+        private final int player;
+        private final int alpha;
+        private final int beta;
+        private final Split split;
+        private final boolean root;
+
+        /* Buffers de jugadas por numero de jugada, reutilizados en toda la tarea */
+        private final int[][] moveBuffers;
+        private int pendingNodes;
+        boolean aborted;
+        int bestMove = -1;
+
+        SolveTask(MnkBoard board, int player, int alpha, int beta, Split split, boolean root) {
+            this.board = board;
+            this.player = player;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.split = split;
+            this.root = root;
+            moveBuffers = new int[board.getCellCount() + 1][];
+        }
+
+        @Override
+        protected Integer compute() {
+            int value = search(player, alpha, beta, root);
+            nodes.addAndGet(pendingNodes);
+            return value;
+        }
+
+        private boolean shouldStop() {
+            if (++pendingNodes < CHECK_INTERVAL && !stopped) {
+                return aborted;
+            }
+            return checkStop();
+        }
+
+        /** Publishes the nodes counted so far and looks at the stop flag and the cutoffs above. */
+        private boolean checkStop() {
+            if (nodes.addAndGet(pendingNodes) > nodeBudget || caller.isInterrupted()) {
+                stopped = true;
+            }
+            pendingNodes = 0;
+            if (stopped) {
+                aborted = true;
+            }
+            for (Split point = split; point != null && !aborted; point = point.parent) {
+                aborted = point.cutoff;
+            }
+            return aborted;
+        }
+
+        /** Value for {@code toMove}; meaningless once {@link #aborted} is set. */
+        private int search(int toMove, int alpha, int beta, boolean atRoot) {
+            if (shouldStop()) {
+                return DRAW;
+            }
+            int empties = board.getCellCount() - board.getMoveCount();
+            if (empties == 0) {
+                return DRAW;
+            }
+
+            long key = keyOf(board, toMove);
+            long entry = table.probe(key);
+            int tableMove = -1;
+            if (entry != TranspositionTable.MISS) {
+                int value = TranspositionTable.value(entry);
+                tableMove = TranspositionTable.move(entry);
+                if (!atRoot) {
+                    switch (TranspositionTable.bound(entry)) {
+                        case TranspositionTable.EXACT:
+                            return value;
+                        case TranspositionTable.LOWER:
+                            alpha = Math.max(alpha, value);
+                            break;
+                        case TranspositionTable.UPPER:
+                            beta = Math.min(beta, value);
+                            break;
+                    }
+                    if (alpha >= beta) {
+                        return value;
+                    }
+                }
+            }
+
+            int win = board.findWinningCell(toMove);
+            if (win >= 0) {
+                if (atRoot) {
+                    bestMove = win;
+                }
+                table.store(key, WIN, TranspositionTable.EXACT, win, empties);
+                return WIN;
+            }
+
+            int[] moves = buffer(board.getMoveCount());
+            int count;
+            int opponent = Board.opponent(toMove);
+            int threat = board.findWinningCell(opponent);
+            if (threat >= 0) {
+                // Solo bloquear evita perder en la siguiente jugada
+                moves[0] = threat;
+                count = 1;
+            } else {
+                count = orderMoves(moves, tableMove);
+            }
+
+            int originalAlpha = alpha;
+            int best = LOSS - 1;
+            int bestCell = moves[0];
+            for (int i = 0; i < count; i++) {
+                if (i == 1 && empties > SEQUENTIAL_EMPTIES) {
+                    // El primer hermano ya dio una cota; el resto se reparte
+                    int[] result = searchInParallel(moves, 1, count, toMove, alpha, beta, best, bestCell);
+                    if (aborted) {
+                        return DRAW;
+                    }
+                    best = result[0];
+                    bestCell = result[1];
+                    break;
+                }
+
+                int value = -child(moves[i], toMove, -beta, -alpha);
+                if (aborted) {
+                    return DRAW;
+                }
+                if (value > best) {
+                    best = value;
+                    bestCell = moves[i];
+                }
+                if (value > alpha) {
+                    alpha = value;
+                }
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+
+            if (atRoot) {
+                bestMove = bestCell;
+            }
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, best, bound, bestCell, empties);
+            return best;
+        }
+
+        /** Value of {@code cell} for the opponent of {@code toMove}, who replies after it. */
+        private int child(int cell, int toMove, int alpha, int beta) {
+            int status = board.play(cell, toMove);
+            // Sin jugada ganadora previa, la jugada no puede ganar: solo empatar o seguir
+            int value = status == Board.DRAW_GAME ? DRAW
+                    : search(Board.opponent(toMove), alpha, beta, false);
+            board.undo(cell);
+            return value;
+        }
+
+        /** Searches {@code moves[from..to)} as parallel tasks; returns the best value and cell. */
+        private int[] searchInParallel(int[] moves, int from, int to, int toMove,
+                                       int alpha, int beta, int best, int bestCell) {
+            // Una tarea que reparte visita pocos nodos propios: sin esto no veria el limite ni los cortes
+            if (checkStop()) {
+                return new int[] {best, bestCell};
+            }
+            Split point = new Split(split);
+            List<SolveTask> tasks = new ArrayList<>(to - from);
+            int[] cells = new int[to - from];
+            for (int i = from; i < to; i++) {
+                MnkBoard copy = new MnkBoard(board);
+                if (copy.play(moves[i], toMove) == Board.DRAW_GAME) {
+                    if (DRAW > best) {
+                        best = DRAW;
+                        bestCell = moves[i];
+                    }
+                    continue;
+                }
+                SolveTask task = new SolveTask(copy, Board.opponent(toMove), -beta, -alpha, point, false);
+                cells[tasks.size()] = moves[i];
+                tasks.add(task);
+                task.fork();
+            }
+
+            // Se recogen en orden; un corte para a los hermanos que sigan buscando
+            for (int i = 0; i < tasks.size(); i++) {
+                SolveTask task = tasks.get(i);
+                if (point.cutoff) {
+                    task.cancel(false);
+                    continue;
+                }
+                int value = -task.join();
+                if (task.aborted) {
+                    // Sin corte propio, el hijo paro por el presupuesto o por un corte mas arriba
+                    aborted = true;
+                    point.cutoff = true;
+                    continue;
+                }
+                if (value > best) {
+                    best = value;
+                    bestCell = cells[i];
+                }
+                if (value > alpha) {
+                    alpha = value;
+                }
+                if (alpha >= beta) {
+                    point.cutoff = true;
+                }
+            }
+            return new int[] {best, bestCell};
+        }
+
+        /** Free cells, the table's move first and then from the centre outwards. */
+        private int orderMoves(int[] moves, int first) {
+            int count = 0;
+            if (first >= 0 && board.isFree(first)) {
+                moves[count++] = first;
+            }
+            for (int cell : centreOrder) {
+                if (cell != first && board.isFree(cell)) {
+                    moves[count++] = cell;
+                }
+            }
+            return count;
+        }
+
+        private int[] buffer(int ply) {
+            int[] moves = moveBuffers[ply];
+            if (moves == null) {
+                moves = new int[board.getCellCount()];
+                moveBuffers[ply] = moves;
+            }
+            return moves;
+        }
+    }
+
+    private static int[] centreOrder(int width, int height) {
+        Integer[] cells = new Integer[width * height];
+        final double[] distance = new double[cells.length];
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = cell;
+            double dx = cell % width - (width - 1) / 2.0;
+            double dy = cell / width - (height - 1) / 2.0;
+            distance[cell] = dx * dx + dy * dy;
+        }
+        Arrays.sort(cells, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(distance[a], distance[b]);
+            }
+        });
+        int[] order = new int[cells.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = cells[i];
+        }
+        return order;
+    }
+}
@@ -0,0 +1,138 @@
+package co.edu.unal.triqui.engine;
+
+/**
+ * Grades every move of a finished game against the strongest engine
+ * available for its board: the solved table on 3x3, which gives exact
+ * results, and MCTS estimates elsewhere. Each move is compared with the
+ * best value the mover could have reached from the same position.
+ *
+ * <p>An analyzer holds search state, so each thread needs its own.
+ */
+public final class GameAnalyzer {
+    public static final int BEST = 0;
+    public static final int INACCURACY = 1;
+    public static final int BLUNDER = 2;
+
+    public static final long DEFAULT_BUDGET_MILLIS = 100;
+
+    /* Perdida de valor esperado (0..1) a partir de la cual una jugada baja de categoria */
+    private static final double INACCURACY_DROP = 0.1;
+    private static final double BLUNDER_DROP = 0.3;
+    /* Por debajo de este valor esperado la partida se da por perdida */
+    private static final double LOST_VALUE = 0.2;
+
+    /** Grades of one game, indexed by ply. */
+    public static final class Analysis {
+        public final int[] cells;
+        public final int[] players;
+        public final int[] grades;
+        /* Valor esperado de la mejor jugada y de la jugada hecha, para quien movio */
+        public final float[] bestValues;
+        public final float[] playedValues;
+        /* Primera jugada tras la cual quien movio queda perdido, o -1 */
+        public int firstLosingPly = -1;
+        /* True si los valores son exactos (tabla resuelta) */
+        public boolean exact;
+
+        Analysis(int plies) {
+            cells = new int[plies];
+            players = new int[plies];
+            grades = new int[plies];
+            bestValues = new float[plies];
+            playedValues = new float[plies];
+        }
+
+        public int size() {
+            return cells.length;
+        }
+
+        public int count(int grade, int player) {
+            int count = 0;
+            for (int ply = 0; ply < grades.length; ply++) {
+                if (grades[ply] == grade && players[ply] == player) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private final SolvedTable solvedTable;
+    private final long budgetMillis;
+    private MctsSearch search;
+
+    /**
+     * @param solvedTable  exact values for 3x3 games, or null to use MCTS there too
+     * @param budgetMillis MCTS time per position on other boards
+     */
+    public GameAnalyzer(SolvedTable solvedTable, long budgetMillis) {
+        this.solvedTable = solvedTable;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /** Analyzes the first {@code moves.getPly()} moves of a game on a {@code width x height} board. */
+    public Analysis analyze(int width, int height, int winLength, MoveLog moves) {
+        MnkBoard board = new MnkBoard(width, height, winLength);
+        Analysis analysis = new Analysis(moves.getPly());
+        analysis.exact = board.isClassic() && solvedTable != null;
+
+        // Valor para quien mueve en cada posicion; el de despues de una
+        // jugada es el de antes de la siguiente, visto por el rival
+        double before = value(board, moves.getPly() > 0 ? moves.playerAt(0) : Board.FIRST, analysis.exact);
+        for (int ply = 0; ply < moves.getPly(); ply++) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            int cell = moves.cellAt(ply);
+            int player = moves.playerAt(ply);
+            int status = board.play(cell, player);
+
+            double after = status == Board.WON ? 1
+                    : status == Board.DRAW_GAME ? 0.5
+                    : 1 - value(board, Board.opponent(player), analysis.exact);
+
+            analysis.cells[ply] = cell;
+            analysis.players[ply] = player;
+            // MCTS puede estimar la jugada hecha por encima de su "mejor" jugada
+            analysis.bestValues[ply] = (float) Math.max(before, after);
+            analysis.playedValues[ply] = (float) after;
+            analysis.grades[ply] = grade(before, after, analysis.exact);
+            if (analysis.firstLosingPly < 0 && after < LOST_VALUE && before >= LOST_VALUE) {
+                analysis.firstLosingPly = ply;
+            }
+
+            before = 1 - after;
+        }
+        return analysis;
+    }
+
+    private static int grade(double best, double played, boolean exact) {
+        double drop = best - played;
+        if (exact) {
+            // Ganada a tablas es una imprecision; cualquier jugada que pierde es un error grave
+            return drop <= 0 ? BEST : played == 0 ? BLUNDER : INACCURACY;
+        }
+        return drop < INACCURACY_DROP ? BEST : drop < BLUNDER_DROP ? INACCURACY : BLUNDER;
+    }
+
+    /** Expected score in [0, 1] for {@code player}, who is to move on {@code board}. */
+    private double value(MnkBoard board, int player, boolean exact) {
+        if (exact) {
+            switch (solvedTable.outcome(board.toClassic())) {
+                case SolvedTable.OUTCOME_WIN:
+                    return 1;
+                case SolvedTable.OUTCOME_LOSS:
+                    return 0;
+                default:
+                    return 0.5;
+            }
+        }
+
+        if (search == null) {
+            search = new MctsSearch(1, board.getHash());
+        }
+        search.bestMove(board, player, budgetMillis);
+        double value = search.getRootValue();
+        return Double.isNaN(value) ? 0.5 : value;
+    }
+}
@@ -0,0 +1,483 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Monte Carlo Tree Search for {@link MnkBoard} positions of any size. It is
+ * an anytime search: it keeps running random playouts until a wall-clock
+ * budget runs out and then plays the most visited move.
+ *
+ * <p>Playouts run tree-parallel: all workers share one tree whose node
+ * statistics are plain atomics, and a visit is counted on the way down
+ * (a virtual loss) so concurrent workers spread over different branches.
+ * The subtree under the moves played since the last call is kept, so the
+ * work spent on the expected reply is not thrown away.
+ *
+ * <p>{@link #bestMove} must be called from one thread at a time.
+ */
+public final class MctsSearch {
+    public static final long DEFAULT_BUDGET_MILLIS = 500;
+
+    /* Constante de exploracion UCT sobre recompensas en [0, 1] */
+    private static final double EXPLORATION = 1.4;
+    private static final int EXPAND_VISITS = 2;
+    private static final int MAX_NODES = 500000;
+    /* Solo se consideran casillas a esta distancia de alguna ficha */
+    private static final int NEIGHBOURHOOD = 2;
+
+    private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+    static final class Node {
+        final int move;
+        /* Jugador que hizo la jugada que lleva a este nodo */
+        final int player;
+        final AtomicInteger visits = new AtomicInteger();
+        /* Medios puntos: 2 por victoria, 1 por empate */
+        final AtomicInteger score = new AtomicInteger();
+        volatile Node[] children;
+
+        Node(int move, int player) {
+            this.move = move;
+            this.player = player;
+        }
+    }
+
+    private final int threads;
+    private final Random[] randoms;
+    private final ExecutorService pool;
+    private final AtomicInteger nodeCount = new AtomicInteger();
+    private final AtomicLong playouts = new AtomicLong();
+    private volatile boolean stop;
+
+    private Node root;
+    private MnkBoard rootBoard;
+    private int rootPlayer;
+    private boolean treeReused;
+    private long elapsedNanos;
+
+    /**
+     * @param threads number of playout workers; with one the search runs on
+     *                the calling thread and no pool is created
+     */
+    public MctsSearch(int threads, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+
+        Random seeds = new Random(seed);
+        randoms = new Random[threads];
+        for (int i = 0; i < threads; i++) {
+            randoms[i] = new Random(seeds.nextLong());
+        }
+
+        pool = threads == 1 ? null : Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger created = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "triqui-mcts-" + created.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /** Playouts run by the last call to {@link #bestMove}. */
+    public long getPlayouts() {
+        return playouts.get();
+    }
+
+    public double getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts.get() * 1e9 / elapsedNanos;
+    }
+
+    /** Nodes in the current tree, including the ones kept from earlier calls. */
+    public int getNodeCount() {
+        return nodeCount.get();
+    }
+
+    /** True if the last call started from a subtree of the previous search. */
+    public boolean isTreeReused() {
+        return treeReused;
+    }
+
+    /** Drops the tree, e.g. when a new game starts. */
+    public void reset() {
+        root = null;
+        rootBoard = null;
+        nodeCount.set(0);
+    }
+
+    public void shutdown() {
+        stop = true;
+        if (pool != null) {
+            // Las tareas que no llegaron a empezar se cancelan para que nadie espere por ellas
+            for (Runnable never : pool.shutdownNow()) {
+                if (never instanceof Future) {
+                    ((Future<?>) never).cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches for {@code budgetMillis} and returns the most visited move for
+     * {@code player}, or -1 if the game is already over. If the calling
+     * thread is interrupted the best move found so far is returned.
+     */
+    public int bestMove(MnkBoard board, int player, long budgetMillis) {
+        if (board.status() != Board.UNFINISHED) {
+            return -1;
+        }
+
+        prepareRoot(board, player);
+        playouts.set(0);
+        stop = false;
+
+        long start = System.nanoTime();
+        final long deadline = start + budgetMillis * 1000000L;
+        if (pool == null) {
+            runPlayouts(new MnkBoard(rootBoard), root, rootPlayer, randoms[0], deadline);
+        } else {
+            runParallel(deadline);
+        }
+        elapsedNanos = System.nanoTime() - start;
+
+        return mostVisited();
+    }
+
+    private void runParallel(final long deadline) {
+        final Node searchRoot = root;
+        final int player = rootPlayer;
+        List<Future<?>> workers = new ArrayList<>(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                final Random random = randoms[i];
+                final MnkBoard copy = new MnkBoard(rootBoard);
+                workers.add(pool.submit(new Callable<Void>() {
+                    public Void call() {
+                        runPlayouts(copy, searchRoot, player, random, deadline);
+                        return null;
+                    }
+                }));
+            }
+        } catch (RejectedExecutionException e) {
+            // shutdown() durante la busqueda: se usa lo que ya este en el arbol
+            stop = true;
+        }
+
+        // Se espera a todos aunque la busqueda se cancele: uno que siguiera
+        // corriendo jugaria en el arbol de la llamada siguiente
+        boolean interrupted = false;
+        Throwable failure = null;
+        for (Future<?> worker : workers) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // Cancelada: detener a los trabajadores y quedarse con lo que haya
+                    interrupted = true;
+                    stop = true;
+                } catch (ExecutionException e) {
+                    stop = true;
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                } catch (CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new IllegalStateException("MCTS worker failed", failure);
+        }
+    }
+
+    private void runPlayouts(MnkBoard board, Node searchRoot, int searchPlayer, Random random, long deadline) {
+        int[] played = new int[board.getCellCount()];
+        int[] free = new int[board.getCellCount()];
+        Node[] path = new Node[board.getCellCount() + 1];
+
+        long done = 0;
+        while (!stop && System.nanoTime() < deadline) {
+            if ((done & 0x3F) == 0 && Thread.currentThread().isInterrupted()) {
+                stop = true;
+                break;
+            }
+            playout(board, searchRoot, searchPlayer, random, played, free, path);
+            done++;
+        }
+        playouts.addAndGet(done);
+    }
+
+    private void playout(MnkBoard board, Node searchRoot, int searchPlayer, Random random,
+                         int[] played, int[] free, Node[] path) {
+        Node node = searchRoot;
+        node.visits.incrementAndGet();
+        int depth = 0;
+        path[depth++] = node;
+
+        int moves = 0;
+        int player = searchPlayer;
+        int status = Board.UNFINISHED;
+
+        // Seleccion y expansion
+        while (status == Board.UNFINISHED) {
+            Node[] children = node.children;
+            if (children == null) {
+                if (node.visits.get() < EXPAND_VISITS || !expand(node, board, player, random)) {
+                    break;
+                }
+                children = node.children;
+            }
+            node = select(node, children);
+            node.visits.incrementAndGet();
+            path[depth++] = node;
+
+            status = board.play(node.move, player);
+            played[moves++] = node.move;
+            player = Board.opponent(player);
+        }
+
+        // Simulacion aleatoria hasta el final de la partida
+        if (status == Board.UNFINISHED) {
+            int count = 0;
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                if (board.isFree(cell)) {
+                    free[count++] = cell;
+                }
+            }
+            while (status == Board.UNFINISHED) {
+                int index = random.nextInt(count);
+                int cell = free[index];
+                free[index] = free[--count];
+
+                status = board.play(cell, player);
+                played[moves++] = cell;
+                player = Board.opponent(player);
+            }
+        }
+
+        // Quien hizo la ultima jugada es el ganador, si lo hay
+        int winner = status == Board.WON ? Board.opponent(player) : Board.FREE;
+        for (int i = 0; i < depth; i++) {
+            Node visited = path[i];
+            int reward = winner == Board.FREE ? 1 : winner == visited.player ? 2 : 0;
+            if (reward != 0) {
+                visited.score.addAndGet(reward);
+            }
+        }
+
+        while (moves > 0) {
+            board.undo(played[--moves]);
+        }
+    }
+
+    private Node select(Node parent, Node[] children) {
+        double logVisits = Math.log(Math.max(1, parent.visits.get()));
+        Node best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+
+        for (Node child : children) {
+            int visits = child.visits.get();
+            if (visits == 0) {
+                // Los hijos se barajan al expandir, asi que el primero sin visitar es aleatorio
+                return child;
+            }
+            double value = child.score.get() / (2.0 * visits)
+                    + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    private boolean expand(Node node, MnkBoard board, int player, Random random) {
+        int[] candidates = candidateMoves(board);
+        int count = candidates.length;
+        if (count == 0 || nodeCount.get() + count > MAX_NODES) {
+            return false;
+        }
+
+        Node[] children = new Node[count];
+        for (int i = 0; i < count; i++) {
+            int swap = random.nextInt(i + 1);
+            children[i] = children[swap];
+            children[swap] = new Node(candidates[i], player);
+        }
+
+        // Si otro trabajador expandio primero se usan sus hijos
+        if (CHILDREN.compareAndSet(node, null, children)) {
+            nodeCount.addAndGet(count);
+        }
+        return true;
+    }
+
+    /** Free cells near existing stones, or the centre on an empty board. */
+    private static int[] candidateMoves(MnkBoard board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        if (board.getMoveCount() == 0) {
+            return new int[] {board.cellOf(height / 2, width / 2)};
+        }
+
+        boolean[] near = new boolean[board.getCellCount()];
+        int count = 0;
+        for (int cell = 0; cell < near.length; cell++) {
+            if (board.isFree(cell)) {
+                continue;
+            }
+            int row = board.rowOf(cell);
+            int column = board.columnOf(cell);
+            for (int r = Math.max(0, row - NEIGHBOURHOOD); r <= Math.min(height - 1, row + NEIGHBOURHOOD); r++) {
+                for (int c = Math.max(0, column - NEIGHBOURHOOD); c <= Math.min(width - 1, column + NEIGHBOURHOOD); c++) {
+                    int candidate = board.cellOf(r, c);
+                    if (!near[candidate] && board.isFree(candidate)) {
+                        near[candidate] = true;
+                        count++;
+                    }
+                }
+            }
+        }
+
+        int[] candidates = new int[count];
+        count = 0;
+        for (int cell = 0; cell < near.length; cell++) {
+            if (near[cell]) {
+                candidates[count++] = cell;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Moves the root down to {@code board} if it can be reached from the
+     * previous root through the tree, otherwise starts a new tree.
+     */
+    private void prepareRoot(MnkBoard board, int player) {
+        Node reused = descend(board, player);
+        treeReused = reused != null;
+        if (reused != null) {
+            root = reused;
+            nodeCount.set(countNodes(reused));
+        } else {
+            root = new Node(-1, Board.opponent(player));
+            nodeCount.set(1);
+        }
+        rootBoard = new MnkBoard(board);
+        rootPlayer = player;
+    }
+
+    private Node descend(MnkBoard board, int player) {
+        MnkBoard previous = rootBoard;
+        if (root == null || previous.getWidth() != board.getWidth()
+                || previous.getHeight() != board.getHeight()
+                || previous.getWinLength() != board.getWinLength()
+                || previous.getMoveCount() > board.getMoveCount()) {
+            return null;
+        }
+
+        // La posicion nueva debe contener todas las fichas de la anterior
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (!previous.isFree(cell) && previous.get(cell) != board.get(cell)) {
+                return null;
+            }
+        }
+
+        Node node = root;
+        int toMove = rootPlayer;
+        for (int remaining = board.getMoveCount() - previous.getMoveCount(); remaining > 0; remaining--) {
+            Node[] children = node.children;
+            Node next = null;
+            if (children != null) {
+                for (Node child : children) {
+                    if (previous.isFree(child.move) && board.get(child.move) == toMove) {
+                        next = child;
+                        break;
+                    }
+                }
+            }
+            if (next == null) {
+                return null;
+            }
+            node = next;
+            toMove = Board.opponent(toMove);
+        }
+        return toMove == player ? node : null;
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        Node[] children = node.children;
+        if (children != null) {
+            for (Node child : children) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Expected score in [0, 1] for the side to move in the last searched
+     * position (1 is a win, 0.5 a draw), read from its most visited move;
+     * NaN if no move got a playout.
+     */
+    public double getRootValue() {
+        Node best = root == null ? null : mostVisitedChild();
+        if (best == null || best.visits.get() == 0) {
+            return Double.NaN;
+        }
+        return best.score.get() / (2.0 * best.visits.get());
+    }
+
+    private int mostVisited() {
+        Node best = mostVisitedChild();
+        if (best == null) {
+            // Sin tiempo ni para expandir la raiz
+            int[] candidates = candidateMoves(rootBoard);
+            return candidates.length > 0 ? candidates[0] : -1;
+        }
+        return best.move;
+    }
+
+    private Node mostVisitedChild() {
+        Node[] children = root.children;
+        if (children == null) {
+            return null;
+        }
+
+        Node best = null;
+        for (Node child : children) {
+            if (best == null || child.visits.get() > best.visits.get()) {
+                best = child;
+            }
+        }
+        return best;
+    }
+}
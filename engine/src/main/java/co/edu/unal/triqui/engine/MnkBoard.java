@@ -0,0 +1,300 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.Arrays;
+
+/**
+ * Board of arbitrary width and height where {@code winLength} stones in a
+ * row win (an m,n,k-game). The game status is updated incrementally: after
+ * each move only the four lines through the new stone are scanned, which
+ * is O(k) instead of a full board rescan.
+ *
+ * <p>The board also keeps a Zobrist hash of the position, updated with one
+ * XOR per move, to key caches without building a copy of the cells.
+ */
+public final class MnkBoard {
+    /* Direcciones: horizontal, vertical, diagonal y antidiagonal */
+    private static final int[] DX = {1, 0, 1, 1};
+    private static final int[] DY = {0, 1, 1, -1};
+
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final byte[] cells;
+    /* Claves Zobrist: keys[2 * celda + jugador - 1]; solo dependen del tamaño */
+    private final long[] keys;
+    private final long emptyHash;
+
+    private long hash;
+    private int moveCount;
+    private int lastMove = -1;
+    private int status = Board.UNFINISHED;
+    private int lineStart = -1;
+    private int lineEnd = -1;
+
+    public MnkBoard(int width, int height, int winLength) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid board size " + width + "x" + height);
+        }
+        if (winLength < 1 || winLength > Math.max(width, height)) {
+            throw new IllegalArgumentException("Invalid win length " + winLength);
+        }
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.cells = new byte[width * height];
+
+        // Semilla por dimensiones: posiciones de tableros distintos no comparten claves
+        long seed = ((long) width << 32) ^ ((long) height << 16) ^ winLength;
+        keys = new long[2 * cells.length];
+        for (int i = 0; i < keys.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            keys[i] = mix(seed);
+        }
+        emptyHash = mix(seed + 0x9E3779B97F4A7C15L);
+        hash = emptyHash;
+    }
+
+    public MnkBoard(MnkBoard other) {
+        width = other.width;
+        height = other.height;
+        winLength = other.winLength;
+        cells = other.cells.clone();
+        keys = other.keys;
+        emptyHash = other.emptyHash;
+        hash = other.hash;
+        moveCount = other.moveCount;
+        lastMove = other.lastMove;
+        status = other.status;
+        lineStart = other.lineStart;
+        lineEnd = other.lineEnd;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * Zobrist hash of the stones on the board. Equal positions on boards of
+     * the same size always hash the same, whatever the move order.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public int cellOf(int row, int column) {
+        return row * width + column;
+    }
+
+    public int rowOf(int cell) {
+        return cell / width;
+    }
+
+    public int columnOf(int cell) {
+        return cell % width;
+    }
+
+    /** True for the classic 3x3, three-in-a-row game handled by {@link Board}. */
+    public boolean isClassic() {
+        return width == Board.SIZE && height == Board.SIZE && winLength == Board.SIZE;
+    }
+
+    public int get(int cell) {
+        return cells[cell];
+    }
+
+    public boolean isFree(int cell) {
+        return cells[cell] == Board.FREE;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    /** First cell of the completed line once the game is won, otherwise -1. */
+    public int getWinningLineStart() {
+        return lineStart;
+    }
+
+    /** Last cell of the completed line once the game is won, otherwise -1. */
+    public int getWinningLineEnd() {
+        return lineEnd;
+    }
+
+    /**
+     * Places a stone for {@code player} and updates the status by looking
+     * only at the lines through {@code cell}.
+     */
+    public int play(int cell, int player) {
+        cells[cell] = (byte) player;
+        hash ^= keys[2 * cell + player - 1];
+        moveCount++;
+        lastMove = cell;
+
+        if (connects(cell, player)) {
+            status = Board.WON;
+            recordLine(cell, player);
+        } else if (moveCount == cells.length) {
+            status = Board.DRAW_GAME;
+        } else {
+            status = Board.UNFINISHED;
+        }
+        return status;
+    }
+
+    /** Removes the stone at {@code cell}; the game was necessarily unfinished before it. */
+    public void undo(int cell) {
+        if (cells[cell] == Board.FREE) {
+            return;
+        }
+        hash ^= keys[2 * cell + cells[cell] - 1];
+        cells[cell] = Board.FREE;
+        moveCount--;
+        lastMove = -1;
+        status = Board.UNFINISHED;
+        lineStart = -1;
+        lineEnd = -1;
+    }
+
+    /** True if {@code player} would complete a line by taking {@code cell}. */
+    public boolean wouldWin(int cell, int player) {
+        return connects(cell, player);
+    }
+
+    /**
+     * Returns the last free cell (in cell order) that completes a line for
+     * {@code player}, or -1 if there is none.
+     */
+    public int findWinningCell(int player) {
+        int found = -1;
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == Board.FREE && connects(cell, player)) {
+                found = cell;
+            }
+        }
+        return found;
+    }
+
+    public void clear() {
+        Arrays.fill(cells, (byte) Board.FREE);
+        hash = emptyHash;
+        moveCount = 0;
+        lastMove = -1;
+        status = Board.UNFINISHED;
+        lineStart = -1;
+        lineEnd = -1;
+    }
+
+    /**
+     * Replaces the whole position, e.g. when restoring saved state. This is
+     * the only place that needs a full rescan.
+     */
+    public void setCells(int[] values) {
+        if (values.length != cells.length) {
+            throw new IllegalArgumentException("Expected " + cells.length + " cells, got " + values.length);
+        }
+        clear();
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = (byte) values[cell];
+            if (values[cell] != Board.FREE) {
+                hash ^= keys[2 * cell + values[cell] - 1];
+                moveCount++;
+            }
+        }
+        for (int cell = 0; cell < cells.length && status == Board.UNFINISHED; cell++) {
+            if (cells[cell] != Board.FREE && connects(cell, cells[cell])) {
+                status = Board.WON;
+                recordLine(cell, cells[cell]);
+            }
+        }
+        if (status == Board.UNFINISHED && moveCount == cells.length) {
+            status = Board.DRAW_GAME;
+        }
+    }
+
+    public int[] getCells() {
+        int[] values = new int[cells.length];
+        for (int cell = 0; cell < cells.length; cell++) {
+            values[cell] = cells[cell];
+        }
+        return values;
+    }
+
+    /** Bitboard copy of a classic position; only valid when {@link #isClassic()}. */
+    public Board toClassic() {
+        Board board = new Board();
+        for (int cell = 0; cell < Board.CELLS; cell++) {
+            board.set(cell, cells[cell]);
+        }
+        return board;
+    }
+
+    /* Finalizador de SplitMix64 */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private boolean connects(int cell, int player) {
+        int row = cell / width;
+        int column = cell % width;
+
+        for (int direction = 0; direction < DX.length; direction++) {
+            int count = 1
+                    + run(row, column, DX[direction], DY[direction], player)
+                    + run(row, column, -DX[direction], -DY[direction], player);
+            if (count >= winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordLine(int cell, int player) {
+        int row = cell / width;
+        int column = cell % width;
+
+        for (int direction = 0; direction < DX.length; direction++) {
+            int forward = run(row, column, DX[direction], DY[direction], player);
+            int backward = run(row, column, -DX[direction], -DY[direction], player);
+            if (1 + forward + backward >= winLength) {
+                lineStart = cellOf(row - backward * DY[direction], column - backward * DX[direction]);
+                lineEnd = cellOf(row + forward * DY[direction], column + forward * DX[direction]);
+                return;
+            }
+        }
+    }
+
+    private int run(int row, int column, int dx, int dy, int player) {
+        int count = 0;
+        int r = row + dy;
+        int c = column + dx;
+        while (count < winLength && r >= 0 && r < height && c >= 0 && c < width
+                && cells[r * width + c] == player) {
+            count++;
+            r += dy;
+            c += dx;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,111 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.Arrays;
+
+/**
+ * History of a game as packed moves, one {@code short} per ply holding
+ * {@code cell << 1 | (player - 1)}. Undone moves stay after the current
+ * ply until a new move is recorded, so they can be redone. Moving between
+ * plies applies or reverts only the moves in between on the board.
+ */
+public final class MoveLog {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private short[] moves = new short[INITIAL_CAPACITY];
+    /* Jugadas registradas, incluidas las deshechas que se pueden rehacer */
+    private int size;
+    /* Jugadas aplicadas actualmente en el tablero */
+    private int ply;
+
+    /** Appends a move at the current ply, dropping any moves that were undone. */
+    public void record(int cell, int player) {
+        if (ply == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[ply++] = (short) (cell << 1 | (player - 1));
+        size = ply;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public boolean canUndo() {
+        return ply > 0;
+    }
+
+    public boolean canRedo() {
+        return ply < size;
+    }
+
+    public int cellAt(int index) {
+        return moves[index] >> 1;
+    }
+
+    public int playerAt(int index) {
+        return (moves[index] & 1) + 1;
+    }
+
+    /** Reverts the last applied move on {@code board} and returns its cell, or -1. */
+    public int undo(MnkBoard board) {
+        if (ply == 0) {
+            return -1;
+        }
+        int cell = cellAt(--ply);
+        board.undo(cell);
+        return cell;
+    }
+
+    /** Plays the next undone move on {@code board} and returns its cell, or -1. */
+    public int redo(MnkBoard board) {
+        if (ply == size) {
+            return -1;
+        }
+        int cell = cellAt(ply);
+        board.play(cell, playerAt(ply));
+        ply++;
+        return cell;
+    }
+
+    /** Brings {@code board} to {@code target} plies by redoing or undoing the moves in between. */
+    public void seek(MnkBoard board, int target) {
+        if (target < 0 || target > size) {
+            throw new IllegalArgumentException("Ply " + target + " outside 0.." + size);
+        }
+        while (ply > target) {
+            undo(board);
+        }
+        while (ply < target) {
+            redo(board);
+        }
+    }
+
+    public void clear() {
+        size = 0;
+        ply = 0;
+    }
+
+    /** The recorded moves, including undone ones, in the packed format. */
+    public short[] toPacked() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    /**
+     * Replaces the log with {@code packed} and replays the first {@code ply}
+     * moves on {@code board}, which is cleared first.
+     */
+    public void restore(short[] packed, int ply, MnkBoard board) {
+        if (ply < 0 || ply > packed.length) {
+            throw new IllegalArgumentException("Ply " + ply + " outside 0.." + packed.length);
+        }
+        moves = Arrays.copyOf(packed, Math.max(INITIAL_CAPACITY, packed.length));
+        size = packed.length;
+        this.ply = 0;
+        board.clear();
+        seek(board, ply);
+    }
+}
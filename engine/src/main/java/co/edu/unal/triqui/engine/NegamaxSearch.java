@@ -0,0 +1,200 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.Random;
+
+/**
+ * Negamax search with alpha-beta pruning over a 3x3 {@link Board}.
+ * Results are cached in a transposition table keyed on the position
+ * canonicalized under the eight board symmetries. The search can be capped
+ * by depth and by number of nodes, which is how the graded difficulty
+ * levels are built on top of it.
+ */
+public final class NegamaxSearch {
+    public static final int FULL_DEPTH = Board.CELLS;
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    /* Ganar vale mas cuanto antes ocurra: WIN + casillas libres restantes */
+    static final int WIN = 10;
+
+    private static final int INFINITY = 100;
+
+    private static final int EXACT = 1;
+    private static final int LOWER = 2;
+    private static final int UPPER = 3;
+
+    private final int maxDepth;
+    private final long nodeBudget;
+
+    /*
+     * Indexado por la clave canonica (18 bits) desde el punto de vista de quien
+     * mueve. Se crea en la primera busqueda que lo consulta: con profundidad 1
+     * nunca se usa y son 512 KB por instancia.
+     */
+    private byte[] tableValues;
+    private byte[] tableMeta;
+
+    private final int[] rootScores = new int[Board.CELLS];
+    private long nodes;
+    private boolean aborted;
+    private int completedDepth;
+
+    public NegamaxSearch(int maxDepth, long nodeBudget) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be at least 1");
+        }
+        this.maxDepth = Math.min(maxDepth, FULL_DEPTH);
+        this.nodeBudget = nodeBudget;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+    /** Nodes visited by the last call to {@link #bestMove}. */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /** Deepest iteration that finished within the node budget in the last search. */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Returns the best cell for {@code player}, breaking ties between equally
+     * scored moves at random, or -1 if the game is already over.
+     */
+    public int bestMove(Board board, int player, Random random) {
+        int free = board.freeCells();
+        if (free == 0 || board.status() != Board.UNFINISHED) {
+            return -1;
+        }
+
+        nodes = 0;
+        aborted = false;
+        completedDepth = 0;
+
+        int[] best = new int[Board.CELLS];
+        int bestCount = 0;
+        int own = board.mask(player);
+        int other = board.mask(Board.opponent(player));
+        int depthLimit = Math.min(maxDepth, Integer.bitCount(free));
+        // Solo se consulta la tabla en nodos con profundidad restante
+        if (depthLimit > 1 && tableValues == null) {
+            tableValues = new byte[1 << (2 * Board.CELLS)];
+            tableMeta = new byte[1 << (2 * Board.CELLS)];
+        }
+
+        // Profundizacion iterativa: si se agota el presupuesto se usa la
+        // ultima iteracion completa.
+        for (int depth = 1; depth <= depthLimit; depth++) {
+            int bestScore = -INFINITY;
+            for (int cell = 0; cell < Board.CELLS; cell++) {
+                int bit = 1 << cell;
+                if ((free & bit) == 0) {
+                    continue;
+                }
+                int score = Board.isWinning(own | bit)
+                        ? WIN + Integer.bitCount(free) - 1
+                        : -negamax(other, own | bit, depth - 1, -INFINITY, -(bestScore - 1));
+                if (aborted) {
+                    break;
+                }
+                rootScores[cell] = score;
+                if (score > bestScore) {
+                    bestScore = score;
+                }
+            }
+            if (aborted) {
+                break;
+            }
+
+            completedDepth = depth;
+            bestCount = 0;
+            for (int cell = 0; cell < Board.CELLS; cell++) {
+                if ((free & (1 << cell)) != 0 && rootScores[cell] == bestScore) {
+                    best[bestCount++] = cell;
+                }
+            }
+        }
+
+        if (bestCount == 0) {
+            // Ni siquiera la primera iteracion termino
+            return Integer.numberOfTrailingZeros(free);
+        }
+        return best[random.nextInt(bestCount)];
+    }
+
+    private int negamax(int own, int other, int depth, int alpha, int beta) {
+        if (++nodes > nodeBudget
+                || ((nodes & 0x3FF) == 0 && Thread.currentThread().isInterrupted())) {
+            // Presupuesto agotado o busqueda cancelada
+            aborted = true;
+            return 0;
+        }
+
+        int free = ~(own | other) & Board.FULL;
+        if (free == 0 || depth == 0) {
+            return 0;
+        }
+
+        int originalAlpha = alpha;
+        int index = tableIndex(own, other);
+        int meta = tableMeta[index];
+        if (meta != 0 && (meta >> 2) >= depth) {
+            int value = tableValues[index];
+            switch (meta & 0x03) {
+                case EXACT:
+                    return value;
+                case LOWER:
+                    alpha = Math.max(alpha, value);
+                    break;
+                case UPPER:
+                    beta = Math.min(beta, value);
+                    break;
+            }
+            if (alpha >= beta) {
+                return value;
+            }
+        }
+
+        int emptiesAfter = Integer.bitCount(free) - 1;
+        int bestScore = -INFINITY;
+        for (int moves = free; moves != 0; moves &= moves - 1) {
+            int bit = moves & -moves;
+            int score = Board.isWinning(own | bit)
+                    ? WIN + emptiesAfter
+                    : -negamax(other, own | bit, depth - 1, -beta, -alpha);
+            if (aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        int flag = bestScore <= originalAlpha ? UPPER : bestScore >= beta ? LOWER : EXACT;
+        // Un valor que no depende del limite de profundidad vale para cualquier profundidad
+        int storedDepth = depth > emptiesAfter ? FULL_DEPTH : depth;
+        tableValues[index] = (byte) bestScore;
+        tableMeta[index] = (byte) ((storedDepth << 2) | flag);
+
+        return bestScore;
+    }
+
+    private static int tableIndex(int own, int other) {
+        // El valor solo depende de las fichas del jugador en turno y las del
+        // rival, sin importar si quien mueve es el primero o el segundo.
+        return Symmetry.canonicalKey(own, other);
+    }
+}
@@ -0,0 +1,180 @@
+package co.edu.unal.triqui.engine;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Precomputed first moves for the larger boards, written offline by
+ * {@link OpeningBookGenerator}. The file is a sorted array of position
+ * keys followed by the move for each, so a lookup is a binary search
+ * straight over the bytes: mapped from disk, the book costs no heap and
+ * only the pages a probe touches are ever read.
+ *
+ * <p>Keys are symmetry-canonical: a position and its rotations and
+ * reflections share one entry, whose move is stored for the image with
+ * the smallest key and mapped back on the way out.
+ *
+ * <pre>
+ * int  magic, version, count, reserved
+ * long keys[count]    ascending
+ * short moves[count]  cell in the canonical image
+ * </pre>
+ */
+public final class OpeningBook {
+    static final int MAGIC = 0x54524B42; // "TRKB"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int movesOffset;
+
+    private OpeningBook(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an opening book");
+        }
+        count = buffer.getInt(8);
+        movesOffset = HEADER_BYTES + 8 * count;
+        if (count < 0 || buffer.capacity() < movesOffset + 2L * count) {
+            throw new IOException("Truncated opening book");
+        }
+    }
+
+    /** Book over {@code buffer}, typically a mapped asset; it is read in place, never copied. */
+    public static OpeningBook wrap(ByteBuffer buffer) throws IOException {
+        return new OpeningBook(buffer.duplicate());
+    }
+
+    /** Maps {@code file} read-only; the mapping outlives the closed file. */
+    public static OpeningBook map(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            input.close();
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Book move for {@code board}, or -1 if the position is not in the book. */
+    public int probe(MnkBoard board) {
+        int[] symmetry = new int[1];
+        long key = canonicalKey(board, symmetry);
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = buffer.getLong(HEADER_BYTES + 8 * middle);
+            if (found < key) {
+                low = middle + 1;
+            } else if (found > key) {
+                high = middle - 1;
+            } else {
+                int cell = fromCanonical(board, buffer.getShort(movesOffset + 2 * middle), symmetry[0]);
+                // Una colision de claves podria dar una casilla ocupada
+                return cell >= 0 && board.isFree(cell) ? cell : -1;
+            }
+        }
+        return -1;
+    }
+
+    /** Writes a book; {@code keys} must be ascending and {@code moves} in the canonical image. */
+    static void write(long[] keys, short[] moves, OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(keys.length);
+        data.writeInt(0);
+        for (long key : keys) {
+            data.writeLong(key);
+        }
+        for (short move : moves) {
+            data.writeShort(move);
+        }
+        data.flush();
+    }
+
+    /** Symmetries of the board: eight for squares, four (no transposition) otherwise. */
+    static int symmetries(MnkBoard board) {
+        return board.getWidth() == board.getHeight() ? 8 : 4;
+    }
+
+    /**
+     * Image of {@code cell} under {@code symmetry}: bit 2 transposes, bit 0
+     * mirrors the rows and bit 1 the columns.
+     */
+    static int transform(MnkBoard board, int cell, int symmetry) {
+        int row = board.rowOf(cell);
+        int column = board.columnOf(cell);
+        if ((symmetry & 4) != 0) {
+            int swap = row;
+            row = column;
+            column = swap;
+        }
+        if ((symmetry & 1) != 0) {
+            row = board.getHeight() - 1 - row;
+        }
+        if ((symmetry & 2) != 0) {
+            column = board.getWidth() - 1 - column;
+        }
+        return board.cellOf(row, column);
+    }
+
+    /**
+     * Smallest key over the symmetric images of the position; the symmetry
+     * that produced it goes to {@code symmetryOut[0]}. The keys only depend
+     * on the board size and the stones, so they are stable across runs.
+     */
+    static long canonicalKey(MnkBoard board, int[] symmetryOut) {
+        long seed = ((long) board.getWidth() << 32) ^ ((long) board.getHeight() << 16) ^ board.getWinLength();
+        long best = 0;
+        int bestSymmetry = -1;
+        for (int symmetry = 0; symmetry < symmetries(board); symmetry++) {
+            long key = seed;
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                if (!board.isFree(cell)) {
+                    int image = transform(board, cell, symmetry);
+                    key ^= mix(seed + (2L * image + board.get(cell)) * GOLDEN);
+                }
+            }
+            if (bestSymmetry < 0 || key < best) {
+                best = key;
+                bestSymmetry = symmetry;
+            }
+        }
+        symmetryOut[0] = bestSymmetry;
+        return best;
+    }
+
+    private static int fromCanonical(MnkBoard board, int move, int symmetry) {
+        if (move < 0 || move >= board.getCellCount()) {
+            return -1;
+        }
+        // La casilla cuya imagen es la jugada guardada
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (transform(board, cell, symmetry) == move) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /* Finalizador de SplitMix64 */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
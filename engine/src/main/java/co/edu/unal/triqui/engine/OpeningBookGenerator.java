@@ -0,0 +1,152 @@
+package co.edu.unal.triqui.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Offline generator for the {@link OpeningBook} asset. For each large
+ * board of the app it walks the first moves of the game with the computer
+ * on either side: every plausible human move (near the stones already
+ * played, or near the centre on an empty board) and the computer's
+ * Unbeatable reply, found with a longer think time than in play. Usage:
+ * {@code OpeningBookGenerator <output file> [mcts millis]}.
+ */
+public final class OpeningBookGenerator {
+    /* Tableros del libro: ancho, alto, fichas en linea y jugadas del computador cubiertas */
+    private static final int[][] BOARDS = {
+            {4, 4, 4, 3},
+            {5, 5, 4, 2},
+            {7, 7, 5, 2},
+            {15, 15, 5, 2},
+    };
+    /* Distancia maxima de una jugada humana a las fichas ya puestas */
+    private static final int NEAR = 2;
+    /* En un tablero vacio, distancia maxima al centro de la primera ficha */
+    private static final int OPENING_RADIUS = 3;
+
+    private final ComputerPlayer computer;
+    /* Clave canonica -> jugada en la imagen canonica; ordenado por clave */
+    private final Map<Long, Short> entries = new TreeMap<>();
+
+    private OpeningBookGenerator(long mctsMillis) {
+        computer = new ComputerPlayer(new Random(1));
+        computer.setPositionCache(new PositionCache(PositionCache.DEFAULT_CAPACITY));
+        computer.setMctsBudget(mctsMillis, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: OpeningBookGenerator <output file> [mcts millis]");
+            System.exit(1);
+        }
+        long mctsMillis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+
+        OpeningBookGenerator generator = new OpeningBookGenerator(mctsMillis);
+        try {
+            for (int[] size : BOARDS) {
+                int before = generator.entries.size();
+                for (int computer = Board.FIRST; computer <= Board.SECOND; computer++) {
+                    generator.expand(new MnkBoard(size[0], size[1], size[2]), computer, size[3]);
+                }
+                System.out.printf("%dx%d k=%d: %d positions%n", size[0], size[1], size[2],
+                        generator.entries.size() - before);
+            }
+        } finally {
+            generator.computer.shutdown();
+        }
+        generator.write(new File(args[0]));
+    }
+
+    private void expand(MnkBoard board, int computerSide, int computerMoves) {
+        if (board.status() != Board.UNFINISHED || computerMoves == 0) {
+            return;
+        }
+        int toMove = board.getMoveCount() % 2 == 0 ? Board.FIRST : Board.SECOND;
+
+        if (toMove == computerSide) {
+            int move = bookMove(board, toMove);
+            board.play(move, toMove);
+            expand(board, computerSide, computerMoves - 1);
+            board.undo(move);
+            return;
+        }
+
+        // Las respuestas simetricas llevan a la misma entrada: se expande una sola
+        Set<Long> seen = new HashSet<>();
+        int[] symmetry = new int[1];
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (!board.isFree(cell) || !plausible(board, cell)) {
+                continue;
+            }
+            board.play(cell, toMove);
+            if (seen.add(OpeningBook.canonicalKey(board, symmetry))) {
+                expand(board, computerSide, computerMoves);
+            }
+            board.undo(cell);
+        }
+    }
+
+    private int bookMove(MnkBoard board, int player) {
+        int[] symmetry = new int[1];
+        long key = OpeningBook.canonicalKey(board, symmetry);
+        Short stored = entries.get(key);
+        if (stored != null) {
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                if (OpeningBook.transform(board, cell, symmetry[0]) == stored) {
+                    return cell;
+                }
+            }
+        }
+        int move = computer.chooseMove(board, player, DifficultyLevel.Unbeatable);
+        entries.put(key, (short) OpeningBook.transform(board, move, symmetry[0]));
+        return move;
+    }
+
+    private static boolean plausible(MnkBoard board, int cell) {
+        int row = board.rowOf(cell);
+        int column = board.columnOf(cell);
+        if (board.getMoveCount() == 0) {
+            return Math.abs(2 * row - (board.getHeight() - 1)) <= 2 * OPENING_RADIUS
+                    && Math.abs(2 * column - (board.getWidth() - 1)) <= 2 * OPENING_RADIUS;
+        }
+        for (int r = Math.max(0, row - NEAR); r <= Math.min(board.getHeight() - 1, row + NEAR); r++) {
+            for (int c = Math.max(0, column - NEAR); c <= Math.min(board.getWidth() - 1, column + NEAR); c++) {
+                if (!board.isFree(board.cellOf(r, c))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void write(File output) throws IOException {
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        long[] keys = new long[entries.size()];
+        short[] moves = new short[entries.size()];
+        int i = 0;
+        for (Map.Entry<Long, Short> entry : entries.entrySet()) {
+            keys[i] = entry.getKey();
+            moves[i] = entry.getValue();
+            i++;
+        }
+
+        OutputStream stream = new FileOutputStream(output);
+        try {
+            OpeningBook.write(keys, moves, stream);
+        } finally {
+            stream.close();
+        }
+        System.out.printf("Wrote %d positions to %s%n", keys.length, output);
+    }
+}
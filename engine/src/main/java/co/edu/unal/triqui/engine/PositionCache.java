@@ -0,0 +1,159 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Bounded cache from a position to a move, keyed by the board's Zobrist
+ * hash, the side to move and the engine that produced the move. It is a
+ * two-way set-associative table: each key maps to a bucket of two slots
+ * and, when both are taken, the least recently used one is evicted.
+ *
+ * <p>All engines of all {@link ComputerPlayer}s share {@link #getShared()},
+ * so the methods are synchronized; a lookup is a couple of array reads.
+ */
+public final class PositionCache {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /* Que motor produjo la jugada; forma parte de la clave */
+    public static final int WINNING_MOVE = 0;
+    public static final int BLOCKING_MOVE = 1;
+    public static final int PERFECT_MOVE = 2;
+    public static final int ENDGAME_MOVE = 3;
+    public static final int THREAT_MOVE = 4;
+
+    public static final int MISS = -1;
+    /* Resultado guardado de un motor que no encontro jugada: distinto de MISS para que cuente */
+    public static final int NO_MOVE = -2;
+
+    private static PositionCache shared;
+
+    private final long[] keys;
+    private final int[] moves;
+    /* Por cubeta: true si el ultimo uso fue del segundo hueco */
+    private final boolean[] recent;
+    private final int bucketMask;
+
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** @param capacity number of entries, rounded up to a power of two */
+    public PositionCache(int capacity) {
+        int buckets = Integer.highestOneBit(Math.max(2, capacity) - 1);
+        keys = new long[2 * buckets];
+        moves = new int[2 * buckets];
+        recent = new boolean[buckets];
+        bucketMask = buckets - 1;
+        Arrays.fill(moves, MISS);
+    }
+
+    public static synchronized PositionCache getShared() {
+        if (shared == null) {
+            shared = new PositionCache(DEFAULT_CAPACITY);
+        }
+        return shared;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Cached move for {@code board} with {@code player} to move,
+     * {@link #NO_MOVE} if the engine found none there, or {@link #MISS}.
+     */
+    public synchronized int get(MnkBoard board, int player, int engine) {
+        long key = key(board, player, engine);
+        int slot = 2 * bucket(key);
+        for (int way = 0; way < 2; way++) {
+            if (moves[slot + way] != MISS && keys[slot + way] == key) {
+                recent[slot >> 1] = way == 1;
+                hits++;
+                return moves[slot + way];
+            }
+        }
+        misses++;
+        return MISS;
+    }
+
+    /** Stores {@code move}; a negative move is stored as {@link #NO_MOVE}. */
+    public synchronized void put(MnkBoard board, int player, int engine, int move) {
+        if (move < 0) {
+            move = NO_MOVE;
+        }
+        long key = key(board, player, engine);
+        int bucket = bucket(key);
+        int slot = 2 * bucket;
+
+        int way;
+        if (moves[slot] != MISS && keys[slot] == key) {
+            way = 0;
+        } else if (moves[slot + 1] != MISS && keys[slot + 1] == key) {
+            way = 1;
+        } else if (moves[slot] == MISS) {
+            way = 0;
+            size++;
+        } else if (moves[slot + 1] == MISS) {
+            way = 1;
+            size++;
+        } else {
+            // Cubeta llena: se reemplaza el hueco usado hace mas tiempo
+            way = recent[bucket] ? 0 : 1;
+            evictions++;
+        }
+
+        keys[slot + way] = key;
+        moves[slot + way] = move;
+        recent[bucket] = way == 1;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(moves, MISS);
+        Arrays.fill(recent, false);
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public synchronized void resetCounters() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT,
+                "PositionCache[%d/%d entries, %d hits, %d misses, %d evictions, %.1f%% hit rate]",
+                size, keys.length, hits, misses, evictions, 100 * getHitRate());
+    }
+
+    private static long key(MnkBoard board, int player, int engine) {
+        return board.getHash() ^ ((long) (engine * 4 + player) * 0x9E3779B97F4A7C15L);
+    }
+
+    private int bucket(long key) {
+        return (int) (key ^ (key >>> 32)) & bucketMask;
+    }
+}
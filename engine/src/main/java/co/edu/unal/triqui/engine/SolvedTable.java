@@ -0,0 +1,84 @@
+package co.edu.unal.triqui.engine;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Perfect-play table indexed by the base-3 encoding of a 3x3 position
+ * (cell {@code i} contributes {@code value * 3^i}). Each entry is one byte:
+ * the low nibble holds the best cell for the side to move and the next two
+ * bits hold the game-theoretic outcome for that side.
+ */
+public final class SolvedTable {
+    public static final int POSITIONS = 19683; // 3^9
+    public static final int NO_MOVE = 0x0F;
+
+    public static final int OUTCOME_DRAW = 0;
+    public static final int OUTCOME_WIN = 1;
+    public static final int OUTCOME_LOSS = 2;
+
+    /* TERNARY[mask] = suma de 3^i para cada bit i de la mascara */
+    private static final int[] TERNARY = new int[Board.FULL + 1];
+
+    static {
+        for (int mask = 0; mask <= Board.FULL; mask++) {
+            int code = 0;
+            int power = 1;
+            for (int cell = 0; cell < Board.CELLS; cell++) {
+                if ((mask & (1 << cell)) != 0) {
+                    code += power;
+                }
+                power *= 3;
+            }
+            TERNARY[mask] = code;
+        }
+    }
+
+    private final byte[] entries;
+
+    SolvedTable(byte[] entries) {
+        if (entries.length != POSITIONS) {
+            throw new IllegalArgumentException("Expected " + POSITIONS + " entries, got " + entries.length);
+        }
+        this.entries = entries;
+    }
+
+    public static SolvedTable load(InputStream input) throws IOException {
+        byte[] entries = new byte[POSITIONS];
+        DataInputStream data = new DataInputStream(input);
+        try {
+            data.readFully(entries);
+        } finally {
+            data.close();
+        }
+        return new SolvedTable(entries);
+    }
+
+    public static int encode(Board board) {
+        return encode(board.getFirst(), board.getSecond());
+    }
+
+    public static int encode(int first, int second) {
+        return TERNARY[first] + 2 * TERNARY[second];
+    }
+
+    /** The player to move: FIRST unless it already has more stones than SECOND. */
+    public static int sideToMove(int first, int second) {
+        return Integer.bitCount(first) <= Integer.bitCount(second) ? Board.FIRST : Board.SECOND;
+    }
+
+    /** Best cell for the side to move, or -1 if the game is over. */
+    public int bestMove(Board board) {
+        int move = entries[encode(board)] & NO_MOVE;
+        return move == NO_MOVE ? -1 : move;
+    }
+
+    public int outcome(Board board) {
+        return (entries[encode(board)] >> 4) & 0x03;
+    }
+
+    byte[] entries() {
+        return entries;
+    }
+}
@@ -0,0 +1,109 @@
+package co.edu.unal.triqui.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Offline generator for the {@link SolvedTable} asset. Usage:
+ * {@code SolvedTableGenerator <output file>}.
+ */
+public final class SolvedTableGenerator {
+    private static final int UNSOLVED = -128;
+
+    /* Puntaje para el jugador en turno: >0 gana, <0 pierde; mas alto si gana antes */
+    private final byte[] scores = new byte[SolvedTable.POSITIONS];
+    private final byte[] entries = new byte[SolvedTable.POSITIONS];
+
+    private SolvedTableGenerator() {
+        Arrays.fill(scores, (byte) UNSOLVED);
+    }
+
+    public static byte[] generate() {
+        SolvedTableGenerator generator = new SolvedTableGenerator();
+
+        for (int first = 0; first <= Board.FULL; first++) {
+            for (int second = 0; second <= Board.FULL; second++) {
+                if ((first & second) == 0) {
+                    generator.solve(first, second);
+                }
+            }
+        }
+
+        return generator.entries;
+    }
+
+    private int solve(int first, int second) {
+        int code = SolvedTable.encode(first, second);
+        if (scores[code] != UNSOLVED) {
+            return scores[code];
+        }
+
+        int player = SolvedTable.sideToMove(first, second);
+        int own = player == Board.FIRST ? first : second;
+        int other = player == Board.FIRST ? second : first;
+        int free = ~(first | second) & Board.FULL;
+
+        int bestScore;
+        int bestMove = SolvedTable.NO_MOVE;
+
+        if (Board.isWinning(other)) {
+            bestScore = -(Integer.bitCount(free) + 1);
+        } else if (Board.isWinning(own)) {
+            bestScore = Integer.bitCount(free) + 1;
+        } else if (free == 0) {
+            bestScore = 0;
+        } else {
+            bestScore = Integer.MIN_VALUE;
+            for (int cell = 0; cell < Board.CELLS; cell++) {
+                int bit = 1 << cell;
+                if ((free & bit) == 0) {
+                    continue;
+                }
+
+                int score;
+                if (Board.isWinning(own | bit)) {
+                    score = Integer.bitCount(free);
+                } else if (player == Board.FIRST) {
+                    score = -solve(first | bit, second);
+                } else {
+                    score = -solve(first, second | bit);
+                }
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = cell;
+                }
+            }
+        }
+
+        int outcome = bestScore > 0 ? SolvedTable.OUTCOME_WIN
+                : bestScore < 0 ? SolvedTable.OUTCOME_LOSS : SolvedTable.OUTCOME_DRAW;
+        scores[code] = (byte) bestScore;
+        entries[code] = (byte) ((outcome << 4) | bestMove);
+
+        return bestScore;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SolvedTableGenerator <output file>");
+            System.exit(1);
+        }
+
+        File output = new File(args[0]);
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        OutputStream stream = new FileOutputStream(output);
+        try {
+            stream.write(generate());
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package co.edu.unal.triqui.engine;
+
+/**
+ * The eight symmetries of the 3x3 board (four rotations, each optionally
+ * mirrored) applied to occupancy masks through precomputed tables.
+ */
+public final class Symmetry {
+    public static final int COUNT = 8;
+
+    /* CELLS[s][i] = celda a la que va la celda i bajo la simetria s */
+    static final int[][] CELLS = new int[COUNT][Board.CELLS];
+    private static final int[][] MASKS = new int[COUNT][Board.FULL + 1];
+
+    static {
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            for (int cell = 0; cell < Board.CELLS; cell++) {
+                int row = cell / Board.SIZE;
+                int column = cell % Board.SIZE;
+                for (int turn = 0; turn < (symmetry & 3); turn++) {
+                    int rotated = column;
+                    column = Board.SIZE - 1 - row;
+                    row = rotated;
+                }
+                if (symmetry >= 4) {
+                    column = Board.SIZE - 1 - column;
+                }
+                CELLS[symmetry][cell] = row * Board.SIZE + column;
+            }
+
+            for (int mask = 0; mask <= Board.FULL; mask++) {
+                int mapped = 0;
+                for (int cell = 0; cell < Board.CELLS; cell++) {
+                    if ((mask & (1 << cell)) != 0) {
+                        mapped |= 1 << CELLS[symmetry][cell];
+                    }
+                }
+                MASKS[symmetry][mask] = mapped;
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    public static int transform(int mask, int symmetry) {
+        return MASKS[symmetry][mask];
+    }
+
+    public static int transformCell(int cell, int symmetry) {
+        return CELLS[symmetry][cell];
+    }
+
+    /**
+     * Smallest {@code first << 9 | second} over all symmetric images of the
+     * position, so that equivalent positions share one key.
+     */
+    public static int canonicalKey(int first, int second) {
+        int best = Integer.MAX_VALUE;
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            int key = (MASKS[symmetry][first] << Board.CELLS) | MASKS[symmetry][second];
+            if (key < best) {
+                best = key;
+            }
+        }
+        return best;
+    }
+}
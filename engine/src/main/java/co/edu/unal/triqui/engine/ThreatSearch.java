@@ -0,0 +1,235 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.Arrays;
+
+/**
+ * Threat-space search: looks for a win made only of forcing moves, where
+ * every attacking move leaves the opponent a handful of replies. Fours
+ * leave one (the cell that completes them); open threes leave the cells
+ * shared by all the open threes on the board, plus any counter-four. With
+ * so few replies the search reaches far deeper than a full-width one and
+ * usually answers in milliseconds, even on large boards.
+ *
+ * <p>A win is only reported when every defence was refuted, so the move
+ * returned always wins against any play. Running out of depth or nodes
+ * just means no win was found.
+ */
+public final class ThreatSearch {
+    public static final int DEFAULT_MAX_THREATS = 8;
+    public static final long DEFAULT_NODE_BUDGET = 5000;
+
+    /* Posiciones ya refutadas: el mismo ataque se alcanza en muchos ordenes */
+    private static final int FAILED_ENTRIES = 1 << 14;
+    /* Distinguen en la clave la pasada con tres abiertos y el atacante */
+    private static final long THREES_PASS = 0x3C6EF372FE94F82BL;
+    private static final long SECOND_ATTACKS = 0xA54FF53A5F1D36F1L;
+
+    private final int maxThreats;
+    private final long nodeBudget;
+
+    private ThreatTracker tracker;
+    private boolean useThrees;
+    private int attacker;
+    private int defender;
+    private long nodes;
+    private int rootMove;
+    /* Buffers de jugadas por nivel: atacante y defensor se alternan */
+    private final int[][] moveBuffers;
+    /* Tabla directa de posiciones sin victoria y con cuantas amenazas se probo */
+    private final long[] failedKeys = new long[FAILED_ENTRIES];
+    private final byte[] failedThreats = new byte[FAILED_ENTRIES];
+    private int[] counterMoves;
+
+    /** @param maxThreats attacking moves in the longest sequence searched */
+    public ThreatSearch(int maxThreats, long nodeBudget) {
+        this.maxThreats = maxThreats;
+        this.nodeBudget = nodeBudget;
+        moveBuffers = new int[2 * maxThreats + 2][];
+    }
+
+    /** Nodes visited by the last call to {@link #findWin}. */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * First move of a forced win for {@code player}, who is to move, or -1.
+     * Continuous fours are tried first and open threes only if they fail.
+     */
+    public int findWin(MnkBoard board, int player) {
+        nodes = 0;
+        if (board.getWinLength() < 3 || board.status() != Board.UNFINISHED) {
+            return -1;
+        }
+        tracker = new ThreatTracker(board);
+        attacker = player;
+        defender = Board.opponent(player);
+
+        try {
+            for (int pass = 0; pass < 2; pass++) {
+                useThrees = pass == 1;
+                Arrays.fill(failedThreats, (byte) 0);
+                // Por profundidad creciente: las victorias cortas salen antes de agotar los nodos
+                for (int threats = 1; threats <= maxThreats && nodes <= nodeBudget; threats++) {
+                    rootMove = -1;
+                    if (attack(threats, 0)) {
+                        return rootMove;
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            tracker = null;
+        }
+    }
+
+    /** True if the attacker, to move, wins with at most {@code threats} forcing moves. */
+    private boolean attack(int threats, int ply) {
+        if (++nodes > nodeBudget) {
+            return false;
+        }
+        int win = tracker.findWinningCell(attacker);
+        if (win >= 0) {
+            if (ply == 0) {
+                rootMove = win;
+            }
+            return true;
+        }
+        int defenderWins = tracker.getWinningCellCount(defender);
+        if (defenderWins > 1 || threats == 0) {
+            return false;
+        }
+        long key = tracker.getHash() ^ (useThrees ? THREES_PASS : 0)
+                ^ (attacker == Board.SECOND ? SECOND_ATTACKS : 0);
+        int slot = (int) (key ^ (key >>> 32)) & (FAILED_ENTRIES - 1);
+        if (failedKeys[slot] == key && failedThreats[slot] >= threats) {
+            return false;
+        }
+
+        int[] moves = buffer(ply);
+        int count;
+        if (defenderWins == 1) {
+            // Hay que tapar; solo sirve si tapar tambien amenaza
+            moves[0] = tracker.findWinningCell(defender);
+            count = 1;
+        } else {
+            count = candidates(moves);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            tracker.play(cell, attacker);
+            boolean wins;
+            if (tracker.getWinningCellCount(defender) > 0) {
+                wins = false;
+            } else if (tracker.getWinningCellCount(attacker) > 1) {
+                wins = true;
+            } else if (tracker.getWinningCellCount(attacker) == 1 || (useThrees && tracker.getOpenThrees(attacker) > 0)) {
+                wins = defend(threats - 1, ply + 1);
+            } else {
+                wins = false;
+            }
+            tracker.undo(cell);
+
+            if (wins) {
+                if (ply == 0) {
+                    rootMove = cell;
+                }
+                return true;
+            }
+            if (nodes > nodeBudget) {
+                return false;
+            }
+        }
+        // Solo un fracaso completo vale para otra rama
+        failedKeys[slot] = key;
+        failedThreats[slot] = (byte) threats;
+        return false;
+    }
+
+    /** True if every reply of the defender to the attacker's threat still loses. */
+    private boolean defend(int threats, int ply) {
+        int[] moves = buffer(ply);
+        int count;
+        if (tracker.getWinningCellCount(attacker) == 1) {
+            moves[0] = tracker.findWinningCell(attacker);
+            count = 1;
+        } else {
+            count = threeDefences(moves);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            tracker.play(cell, defender);
+            boolean wins = attack(threats, ply + 1);
+            tracker.undo(cell);
+            if (!wins) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Cells where an attacking stone can make a four or, in the second pass, an open three. */
+    private int candidates(int[] moves) {
+        int k = tracker.getWinLength();
+        return tracker.liveCells(attacker, Math.max(1, useThrees ? k - 3 : k - 2), moves);
+    }
+
+    /**
+     * Replies to open threes: the free cells they all share and every move
+     * that makes a four for the defender. Any other move leaves some open
+     * three standing, which becomes an open four the defender cannot stop.
+     */
+    private int threeDefences(int[] moves) {
+        int[] shared = new int[tracker.getWinLength() + 1];
+        int sharedCount = tracker.openThreeDefences(attacker, shared);
+        int count = 0;
+        for (int i = 0; i < sharedCount; i++) {
+            if (tracker.isFree(shared[i])) {
+                moves[count++] = shared[i];
+            }
+        }
+
+        int[] counters = counterBuffer();
+        int counterCount = tracker.liveCells(defender, tracker.getWinLength() - 2, counters);
+        for (int i = 0; i < counterCount; i++) {
+            int cell = counters[i];
+            if (contains(moves, count, cell)) {
+                continue;
+            }
+            tracker.play(cell, defender);
+            boolean four = tracker.getWinningCellCount(defender) > 0;
+            tracker.undo(cell);
+            if (four) {
+                moves[count++] = cell;
+            }
+        }
+        return count;
+    }
+
+    private static boolean contains(int[] moves, int count, int cell) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] counterBuffer() {
+        if (counterMoves == null || counterMoves.length < tracker.getCellCount()) {
+            counterMoves = new int[tracker.getCellCount()];
+        }
+        return counterMoves;
+    }
+
+    private int[] buffer(int ply) {
+        int[] moves = moveBuffers[ply];
+        if (moves == null || moves.length < tracker.getCellCount()) {
+            moves = new int[tracker.getCellCount()];
+            moveBuffers[ply] = moves;
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,452 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.Arrays;
+
+/**
+ * Threat counts of a position, kept up to date as stones are placed and
+ * removed instead of being found by trying every free cell. The board's
+ * lines are cut into precomputed windows of {@code winLength} cells, and
+ * spans one cell longer, in the four directions. For each window the
+ * tracker keeps how many stones of each player it holds, so a move only
+ * touches the windows through its cell:
+ *
+ * <ul>
+ *   <li>a <em>four</em> is a window with {@code winLength - 1} stones of
+ *       one player and none of the other: its free cell wins. It is
+ *       <em>broken</em> when that cell is inside the window;</li>
+ *   <li>an <em>open three</em> is a span whose two end cells are free and
+ *       whose inner cells hold {@code winLength - 2} stones of one player
+ *       and none of the other: filling the gap makes a four that can be
+ *       completed at both ends;</li>
+ *   <li>an <em>open four</em> is such a span with the inner cells full.</li>
+ * </ul>
+ *
+ * <p>The names come from five in a row but the counts work for any
+ * {@code winLength} of at least 3.
+ */
+public final class ThreatTracker {
+    /* Direcciones: horizontal, vertical, diagonal y antidiagonal */
+    private static final int[] DX = {1, 0, 1, 1};
+    private static final int[] DY = {0, 1, 1, -1};
+
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final byte[] cells;
+
+    /*
+     * Tablas de la geometria, solo dependen del tamaño: casillas de cada
+     * ventana (winLength seguidas) y de cada tramo (winLength + 1), y para
+     * cada casilla las ventanas y tramos que la contienen, en formato CSR.
+     * Estas listas guardan la posicion plana (segmento * largo + indice),
+     * asi que dan a la vez el segmento y el lugar de la casilla en el.
+     */
+    private final int[] windowCells;
+    private final int[] cellWindowStart;
+    private final int[] cellWindows;
+    private final int[] spanCells;
+    private final int[] cellSpanStart;
+    private final int[] cellSpans;
+
+    /* Por jugador (indice jugador - 1): fichas y suma de posiciones en cada ventana */
+    private final byte[][] windowStones;
+    private final int[][] windowIndexSum;
+    /* Por jugador: fichas en las casillas interiores de cada tramo; y extremos ocupados */
+    private final byte[][] spanStones;
+    private final byte[] spanEnds;
+
+    /* Contadores por jugador */
+    private final int[][] lines;
+    private final int[] brokenFours;
+    private final int[] openThrees;
+    private final int[] openFours;
+    /* Cuantas ventanas de cuatro completaria cada casilla, y cuantas casillas ganan */
+    private final short[][] winCount;
+    private final int[] winningCells;
+
+    /* Claves Zobrist: keys[2 * casilla + jugador - 1] */
+    private final long[] keys;
+    /* Casillas ya vistas en la llamada liveMark de liveCells */
+    private final int[] liveMarks;
+    private int liveMark;
+
+    private int moveCount;
+    private long hash;
+
+    public ThreatTracker(int width, int height, int winLength) {
+        if (winLength < 3 || winLength > Math.max(width, height)) {
+            throw new IllegalArgumentException("Invalid win length " + winLength);
+        }
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        cells = new byte[width * height];
+
+        windowCells = segments(winLength);
+        cellWindowStart = new int[cells.length + 1];
+        cellWindows = invert(windowCells, cellWindowStart);
+        spanCells = segments(winLength + 1);
+        cellSpanStart = new int[cells.length + 1];
+        cellSpans = invert(spanCells, cellSpanStart);
+
+        int windows = windowCells.length / winLength;
+        int spans = spanCells.length / (winLength + 1);
+        windowStones = new byte[2][windows];
+        windowIndexSum = new int[2][windows];
+        spanStones = new byte[2][spans];
+        spanEnds = new byte[spans];
+        lines = new int[2][winLength + 1];
+        brokenFours = new int[2];
+        openThrees = new int[2];
+        openFours = new int[2];
+        winCount = new short[2][cells.length];
+        winningCells = new int[2];
+        liveMarks = new int[cells.length];
+        keys = new long[2 * cells.length];
+        long seed = ((long) width << 32) ^ ((long) height << 16) ^ winLength;
+        for (int i = 0; i < keys.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            keys[i] = mix(seed);
+        }
+
+        // Tablero vacio: cada ventana y cada tramo vale para los dos jugadores
+        for (int window = 0; window < windows; window++) {
+            add(window);
+        }
+        for (int span = 0; span < spans; span++) {
+            addSpan(span);
+        }
+    }
+
+    /** Tracker loaded with the stones of {@code board}. */
+    public ThreatTracker(MnkBoard board) {
+        this(board.getWidth(), board.getHeight(), board.getWinLength());
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (!board.isFree(cell)) {
+                play(cell, board.get(cell));
+            }
+        }
+    }
+
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public boolean isFree(int cell) {
+        return cells[cell] == Board.FREE;
+    }
+
+    public int get(int cell) {
+        return cells[cell];
+    }
+
+    /** Windows where {@code player} has {@code stones} stones and the opponent none. */
+    public int getLines(int player, int stones) {
+        return lines[player - 1][stones];
+    }
+
+    /** Windows one stone short of a line for {@code player}, broken ones included. */
+    public int getFours(int player) {
+        return lines[player - 1][winLength - 1];
+    }
+
+    public int getBrokenFours(int player) {
+        return brokenFours[player - 1];
+    }
+
+    public int getOpenThrees(int player) {
+        return openThrees[player - 1];
+    }
+
+    public int getOpenFours(int player) {
+        return openFours[player - 1];
+    }
+
+    /** Free cells where {@code player} would complete a line. */
+    public int getWinningCellCount(int player) {
+        return winningCells[player - 1];
+    }
+
+    public boolean isWinningCell(int cell, int player) {
+        return winCount[player - 1][cell] > 0;
+    }
+
+    /** Some free cell where {@code player} would complete a line, or -1. */
+    public int findWinningCell(int player) {
+        if (winningCells[player - 1] == 0) {
+            return -1;
+        }
+        short[] counts = winCount[player - 1];
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (counts[cell] > 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /** True if {@code cell} lies inside an open three of {@code player}, ends included. */
+    public boolean inOpenThree(int cell, int player) {
+        byte[] own = spanStones[player - 1];
+        byte[] other = spanStones[2 - player];
+        for (int i = cellSpanStart[cell]; i < cellSpanStart[cell + 1]; i++) {
+            int span = cellSpans[i] / (winLength + 1);
+            if (spanEnds[span] == 0 && other[span] == 0 && own[span] == winLength - 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cells that lie in every open three of {@code player}, ends included:
+     * the only places where one stone can stop them all. Returns how many
+     * were written to {@code out}, which needs {@code winLength + 1} slots.
+     */
+    public int openThreeDefences(int player, int[] out) {
+        byte[] own = spanStones[player - 1];
+        byte[] other = spanStones[2 - player];
+        int length = winLength + 1;
+        int count = -1;
+        for (int span = 0; span < spanEnds.length && count != 0; span++) {
+            if (spanEnds[span] != 0 || other[span] != 0 || own[span] != winLength - 2) {
+                continue;
+            }
+            if (count < 0) {
+                System.arraycopy(spanCells, span * length, out, 0, length);
+                count = length;
+                continue;
+            }
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (indexOf(spanCells, length, span, out[i]) >= 0) {
+                    out[kept++] = out[i];
+                }
+            }
+            count = kept;
+        }
+        return Math.max(count, 0);
+    }
+
+    /**
+     * Free cells of the windows that hold at least {@code minStones} stones
+     * of {@code player} and none of the opponent's: the only cells where a
+     * stone of {@code player} can build on them. Returns how many were
+     * written to {@code out}, which needs a slot per cell.
+     */
+    public int liveCells(int player, int minStones, int[] out) {
+        byte[] own = windowStones[player - 1];
+        byte[] other = windowStones[2 - player];
+        // Marca por llamada: no hay que limpiar el arreglo entre una y otra
+        int mark = ++liveMark;
+        if (mark == 0) {
+            Arrays.fill(liveMarks, 0);
+            mark = liveMark = 1;
+        }
+        int count = 0;
+        for (int window = 0; window < own.length; window++) {
+            if (other[window] != 0 || own[window] < minStones) {
+                continue;
+            }
+            for (int i = window * winLength; i < (window + 1) * winLength; i++) {
+                int cell = windowCells[i];
+                if (cells[cell] == Board.FREE && liveMarks[cell] != mark) {
+                    liveMarks[cell] = mark;
+                    out[count++] = cell;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Zobrist hash of the stones, as {@link MnkBoard#getHash()} but with keys of its own. */
+    public long getHash() {
+        return hash;
+    }
+
+    public void play(int cell, int player) {
+        int p = player - 1;
+        for (int i = cellWindowStart[cell]; i < cellWindowStart[cell + 1]; i++) {
+            int window = cellWindows[i] / winLength;
+            remove(window);
+            windowStones[p][window]++;
+            windowIndexSum[p][window] += cellWindows[i] - window * winLength;
+        }
+        for (int i = cellSpanStart[cell]; i < cellSpanStart[cell + 1]; i++) {
+            int span = cellSpans[i] / (winLength + 1);
+            removeSpan(span);
+            int index = cellSpans[i] - span * (winLength + 1);
+            if (index == 0 || index == winLength) {
+                spanEnds[span]++;
+            } else {
+                spanStones[p][span]++;
+            }
+        }
+        cells[cell] = (byte) player;
+        hash ^= keys[2 * cell + p];
+        moveCount++;
+        // Las cuentas se rehacen con la casilla ya ocupada: deja de contar como ganadora
+        for (int i = cellWindowStart[cell]; i < cellWindowStart[cell + 1]; i++) {
+            add(cellWindows[i] / winLength);
+        }
+        for (int i = cellSpanStart[cell]; i < cellSpanStart[cell + 1]; i++) {
+            addSpan(cellSpans[i] / (winLength + 1));
+        }
+    }
+
+    public void undo(int cell) {
+        int p = cells[cell] - 1;
+        if (p < 0) {
+            return;
+        }
+        for (int i = cellWindowStart[cell]; i < cellWindowStart[cell + 1]; i++) {
+            int window = cellWindows[i] / winLength;
+            remove(window);
+            windowStones[p][window]--;
+            windowIndexSum[p][window] -= cellWindows[i] - window * winLength;
+        }
+        for (int i = cellSpanStart[cell]; i < cellSpanStart[cell + 1]; i++) {
+            int span = cellSpans[i] / (winLength + 1);
+            removeSpan(span);
+            int index = cellSpans[i] - span * (winLength + 1);
+            if (index == 0 || index == winLength) {
+                spanEnds[span]--;
+            } else {
+                spanStones[p][span]--;
+            }
+        }
+        cells[cell] = Board.FREE;
+        hash ^= keys[2 * cell + p];
+        moveCount--;
+        for (int i = cellWindowStart[cell]; i < cellWindowStart[cell + 1]; i++) {
+            add(cellWindows[i] / winLength);
+        }
+        for (int i = cellSpanStart[cell]; i < cellSpanStart[cell + 1]; i++) {
+            addSpan(cellSpans[i] / (winLength + 1));
+        }
+    }
+
+    private void add(int window) {
+        update(window, 1);
+    }
+
+    private void remove(int window) {
+        update(window, -1);
+    }
+
+    /** Adds ({@code sign} 1) or takes back (-1) what {@code window} contributes to the counters. */
+    private void update(int window, int sign) {
+        for (int p = 0; p < 2; p++) {
+            int stones = windowStones[p][window];
+            if (windowStones[1 - p][window] != 0) {
+                continue;
+            }
+            lines[p][stones] += sign;
+            if (stones == winLength - 1) {
+                // La unica casilla libre es la que falta en la suma de posiciones
+                int missing = winLength * (winLength - 1) / 2 - windowIndexSum[p][window];
+                int cell = windowCells[window * winLength + missing];
+                if (missing > 0 && missing < winLength - 1) {
+                    brokenFours[p] += sign;
+                }
+                // Esa casilla siempre esta libre: la ventana no tiene fichas del rival
+                int before = winCount[p][cell];
+                winCount[p][cell] += sign;
+                if (before == 0 && sign > 0) {
+                    winningCells[p]++;
+                } else if (before == 1 && sign < 0) {
+                    winningCells[p]--;
+                }
+            }
+        }
+    }
+
+    private void addSpan(int span) {
+        updateSpan(span, 1);
+    }
+
+    private void removeSpan(int span) {
+        updateSpan(span, -1);
+    }
+
+    private void updateSpan(int span, int sign) {
+        if (spanEnds[span] != 0) {
+            return;
+        }
+        for (int p = 0; p < 2; p++) {
+            if (spanStones[1 - p][span] != 0) {
+                continue;
+            }
+            int stones = spanStones[p][span];
+            if (stones == winLength - 2) {
+                openThrees[p] += sign;
+            } else if (stones == winLength - 1) {
+                openFours[p] += sign;
+            }
+        }
+    }
+
+    /* Finalizador de SplitMix64 */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int indexOf(int[] segments, int length, int segment, int cell) {
+        int base = segment * length;
+        for (int i = 0; i < length; i++) {
+            if (segments[base + i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Cells of every straight segment of {@code length} cells, one after another. */
+    private int[] segments(int length) {
+        int[] buffer = new int[4 * cells.length * length];
+        int count = 0;
+        for (int direction = 0; direction < DX.length; direction++) {
+            for (int row = 0; row < height; row++) {
+                for (int column = 0; column < width; column++) {
+                    int lastRow = row + (length - 1) * DY[direction];
+                    int lastColumn = column + (length - 1) * DX[direction];
+                    if (lastRow < 0 || lastRow >= height || lastColumn >= width) {
+                        continue;
+                    }
+                    for (int i = 0; i < length; i++) {
+                        buffer[count++] = (row + i * DY[direction]) * width + column + i * DX[direction];
+                    }
+                }
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(buffer, 0, result, 0, count);
+        return result;
+    }
+
+    /** For each cell, the flat positions where it appears; {@code start[cell]} indexes the result. */
+    private int[] invert(int[] segments, int[] start) {
+        for (int cell : segments) {
+            start[cell + 1]++;
+        }
+        for (int cell = 0; cell < cells.length; cell++) {
+            start[cell + 1] += start[cell];
+        }
+        int[] result = new int[segments.length];
+        int[] next = start.clone();
+        for (int i = 0; i < segments.length; i++) {
+            result[next[segments[i]]++] = i;
+        }
+        return result;
+    }
+}
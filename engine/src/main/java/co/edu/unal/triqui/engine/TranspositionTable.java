@@ -0,0 +1,117 @@
+package co.edu.unal.triqui.engine;
+
+import java.util.Arrays;
+
+/**
+ * Lock-free transposition table shared by all the threads of a search,
+ * stored in two primitive {@code long[]} arrays: 16 bytes per entry and no
+ * objects. Each entry packs its result into one long and stores, next to
+ * it, the key XORed with that long. A reader accepts an entry only if the
+ * two still XOR back to its key, so a write torn by a concurrent writer
+ * (or a non-atomic long write) reads as a miss instead of a wrong value.
+ *
+ * <p>Entries are grouped in buckets of two; a store replaces the entry for
+ * the same key or else the one covering the smaller subtree.
+ */
+public final class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    /** Returned by {@link #probe} when the key is not in the table. */
+    public static final long MISS = 0;
+
+    /*
+     * Dato empaquetado: valor + 1 (bits 0-1), tipo de cota (2-3), jugada + 1
+     * (4-19) y casillas libres del nodo (20-31). El tipo nunca es 0, asi
+     * que ningun dato valido es 0.
+     */
+    private final long[] checks;
+    private final long[] data;
+    private final int bucketMask;
+
+    /** @param entries capacity, rounded up to a power of two; each entry takes 16 bytes */
+    public TranspositionTable(int entries) {
+        int buckets = Integer.highestOneBit(Math.max(2, entries) - 1);
+        checks = new long[2 * buckets];
+        data = new long[2 * buckets];
+        bucketMask = buckets - 1;
+    }
+
+    public int getCapacity() {
+        return data.length;
+    }
+
+    /** Packed entry for {@code key}, or {@link #MISS}; read it with the static getters. */
+    public long probe(long key) {
+        int slot = 2 * bucket(key);
+        for (int way = 0; way < 2; way++) {
+            long entry = data[slot + way];
+            if (entry != MISS && (checks[slot + way] ^ entry) == key) {
+                return entry;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * @param value  in [-1, 1]
+     * @param bound  {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     * @param move   best or refuting cell, or -1
+     * @param depth  free cells at the node, the size of the subtree it stands for
+     */
+    public void store(long key, int value, int bound, int move, int depth) {
+        long entry = (value + 1) | (bound << 2) | ((long) ((move + 1) & 0xFFFF) << 4)
+                | ((long) Math.min(depth, 0xFFF) << 20);
+        int slot = 2 * bucket(key);
+
+        int way;
+        if (data[slot] != MISS && (checks[slot] ^ data[slot]) == key) {
+            way = 0;
+        } else if (data[slot + 1] != MISS && (checks[slot + 1] ^ data[slot + 1]) == key) {
+            way = 1;
+        } else {
+            // Se conserva la entrada del subarbol mas grande: es la mas cara de recalcular
+            way = depth(data[slot]) <= depth(data[slot + 1]) ? 0 : 1;
+        }
+
+        data[slot + way] = entry;
+        checks[slot + way] = key ^ entry;
+    }
+
+    public void clear() {
+        Arrays.fill(data, MISS);
+        Arrays.fill(checks, 0);
+    }
+
+    /** Entries in use; scans the whole table, so meant for diagnostics. */
+    public int occupancy() {
+        int used = 0;
+        for (long entry : data) {
+            if (entry != MISS) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    public static int value(long entry) {
+        return (int) (entry & 0x3) - 1;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 2) & 0x3;
+    }
+
+    public static int move(long entry) {
+        return (int) ((entry >>> 4) & 0xFFFF) - 1;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 20) & 0xFFF;
+    }
+
+    private int bucket(long key) {
+        return (int) (key ^ (key >>> 32)) & bucketMask;
+    }
+}
@@ -0,0 +1,214 @@
+package co.edu.unal.triqui.engine;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the solver against a plain negamax over every move on boards
+ * small enough to search completely.
+ */
+public class EndgameSolverTest {
+    private EndgameSolver solver;
+
+    @After
+    public void shutdownSolver() {
+        if (solver != null) {
+            solver.shutdown();
+        }
+    }
+
+    @Test
+    public void matchesPlainNegamaxOnRandomPositions() {
+        Random random = new Random(1);
+        solver = new EndgameSolver(2);
+        int checked = 0;
+        while (checked < 300) {
+            int[] toMove = new int[1];
+            MnkBoard board = randomPosition(random, 4, 4, 3 + random.nextInt(2), 7 + random.nextInt(5), toMove);
+            if (board == null) {
+                continue;
+            }
+            int player = toMove[0];
+            int expected = negamax(board, player);
+
+            EndgameSolver.Result result = solver.solve(board, player, Long.MAX_VALUE);
+            assertTrue(result.complete);
+            assertEquals(expected, result.value);
+            assertEquals("best move keeps the value", expected, valueOf(board, result.bestMove, player));
+            checked++;
+        }
+    }
+
+    @Test
+    public void emptyFourByFourWithFourInARowIsADraw() {
+        solver = new EndgameSolver(2);
+        EndgameSolver.Result result = solver.solve(new MnkBoard(4, 4, 4), Board.FIRST, Long.MAX_VALUE);
+        assertTrue(result.complete);
+        assertEquals(EndgameSolver.DRAW, result.value);
+    }
+
+    @Test
+    public void sameResultWithAnyNumberOfWorkers() {
+        MnkBoard board = new MnkBoard(5, 5, 4);
+        int player = Board.FIRST;
+        for (int cell : new int[] {12, 6, 8, 16, 7, 17}) {
+            board.play(cell, player);
+            player = Board.opponent(player);
+        }
+
+        int expected = Integer.MIN_VALUE;
+        for (int threads = 1; threads <= 4; threads *= 2) {
+            EndgameSolver solver = new EndgameSolver(threads);
+            try {
+                EndgameSolver.Result result = solver.solve(board, player, Long.MAX_VALUE);
+                assertTrue(result.complete);
+                if (expected == Integer.MIN_VALUE) {
+                    expected = result.value;
+                }
+                assertEquals(expected, result.value);
+                assertEquals(expected, valueOfWithSolver(solver, board, result.bestMove, player));
+            } finally {
+                solver.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void stopsWithinTheNodeBudget() {
+        solver = new EndgameSolver(1);
+        EndgameSolver.Result result = solver.solve(new MnkBoard(5, 5, 4), Board.FIRST, 10000);
+        assertFalse(result.complete);
+    }
+
+    @Test
+    public void solversOnOnePoolAndTableSolveAtTheSameTime() throws InterruptedException {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        final TranspositionTable table = new TranspositionTable(1 << 12);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[3];
+        try {
+            for (int t = 0; t < threads.length; t++) {
+                final long seed = t;
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Random random = new Random(seed);
+                            EndgameSolver shared = new EndgameSolver(pool, table);
+                            for (int i = 0; i < 50; i++) {
+                                int[] toMove = new int[1];
+                                MnkBoard board = randomPosition(random, 4, 4, 3, 7, toMove);
+                                if (board == null) {
+                                    continue;
+                                }
+                                EndgameSolver.Result result = shared.solve(board, toMove[0], Long.MAX_VALUE);
+                                assertTrue(result.complete);
+                                assertEquals(negamax(board, toMove[0]), result.value);
+                            }
+                        } catch (Throwable e) {
+                            synchronized (failure) {
+                                failure[0] = e;
+                            }
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw new AssertionError(failure[0]);
+            }
+        }
+    }
+
+    @Test
+    public void shuttingDownAPlayerLeavesTheSharedPoolRunning() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        TranspositionTable table = new TranspositionTable(1 << 12);
+        try {
+            ComputerPlayer first = new ComputerPlayer(new Random(1));
+            first.setEndgameSolver(new EndgameSolver(pool, table));
+            ComputerPlayer second = new ComputerPlayer(new Random(2));
+            second.setEndgameSolver(new EndgameSolver(pool, table));
+
+            MnkBoard board = new MnkBoard(4, 4, 4);
+            first.setPositionCache(new PositionCache(16));
+            first.endgameMove(board, Board.FIRST);
+            first.shutdown();
+            first.setMctsBudget(10, 3);
+            assertFalse(pool.isShutdown());
+
+            // Caches nuevos: la jugada tiene que salir del solucionador
+            second.setPositionCache(new PositionCache(16));
+            assertTrue(second.endgameMove(board, Board.FIRST) >= 0);
+            first.setPositionCache(new PositionCache(16));
+            assertTrue(first.endgameMove(board, Board.FIRST) >= 0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Board after {@code moves} random moves, or null if the game ended on the way. */
+    static MnkBoard randomPosition(Random random, int width, int height, int winLength, int moves, int[] toMove) {
+        MnkBoard board = new MnkBoard(width, height, winLength);
+        int player = Board.FIRST;
+        for (int i = 0; i < moves; i++) {
+            int cell;
+            do {
+                cell = random.nextInt(board.getCellCount());
+            } while (!board.isFree(cell));
+            if (board.play(cell, player) != Board.UNFINISHED) {
+                return null;
+            }
+            player = Board.opponent(player);
+        }
+        toMove[0] = player;
+        return board;
+    }
+
+    /** Game value for {@code player} to move, trying every free cell. */
+    static int negamax(MnkBoard board, int player) {
+        int best = EndgameSolver.LOSS;
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            if (board.isFree(cell)) {
+                best = Math.max(best, valueOf(board, cell, player));
+                if (best == EndgameSolver.WIN) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int valueOf(MnkBoard board, int cell, int player) {
+        int status = board.play(cell, player);
+        int value = status == Board.WON ? EndgameSolver.WIN
+                : status == Board.DRAW_GAME ? EndgameSolver.DRAW
+                : -negamax(board, Board.opponent(player));
+        board.undo(cell);
+        return value;
+    }
+
+    /** Like {@link #valueOf}, with the solver for the reply: the board is too large for negamax. */
+    private static int valueOfWithSolver(EndgameSolver solver, MnkBoard board, int cell, int player) {
+        MnkBoard next = new MnkBoard(board);
+        int status = next.play(cell, player);
+        if (status != Board.UNFINISHED) {
+            return status == Board.WON ? EndgameSolver.WIN : EndgameSolver.DRAW;
+        }
+        return -solver.solve(next, Board.opponent(player), Long.MAX_VALUE).value;
+    }
+}
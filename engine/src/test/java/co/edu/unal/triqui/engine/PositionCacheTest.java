@@ -0,0 +1,66 @@
+package co.edu.unal.triqui.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PositionCacheTest {
+
+    @Test
+    public void storesMovesByPositionPlayerAndEngine() {
+        PositionCache cache = new PositionCache(16);
+        MnkBoard board = new MnkBoard(7, 7, 5);
+        board.play(24, Board.FIRST);
+
+        cache.put(board, Board.SECOND, PositionCache.THREAT_MOVE, 17);
+        assertEquals(17, cache.get(board, Board.SECOND, PositionCache.THREAT_MOVE));
+        assertEquals(PositionCache.MISS, cache.get(board, Board.FIRST, PositionCache.THREAT_MOVE));
+        assertEquals(PositionCache.MISS, cache.get(board, Board.SECOND, PositionCache.WINNING_MOVE));
+    }
+
+    @Test
+    public void noMoveIsAHit() {
+        PositionCache cache = new PositionCache(16);
+        MnkBoard board = new MnkBoard(7, 7, 5);
+
+        assertEquals(PositionCache.MISS, cache.get(board, Board.FIRST, PositionCache.WINNING_MOVE));
+        cache.put(board, Board.FIRST, PositionCache.WINNING_MOVE, -1);
+        assertEquals(PositionCache.NO_MOVE, cache.get(board, Board.FIRST, PositionCache.WINNING_MOVE));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void playerAnswersFromTheCacheWhenThereIsNoMove() {
+        PositionCache cache = new PositionCache(64);
+        ComputerPlayer player = new ComputerPlayer(new Random(1));
+        player.setPositionCache(cache);
+        MnkBoard board = new MnkBoard(15, 15, 5);
+        board.play(112, Board.FIRST);
+
+        assertEquals(-1, player.winningMove(board, Board.SECOND));
+        assertEquals(-1, player.blockingMove(board, Board.SECOND));
+        assertEquals(-1, player.threatMove(board, Board.SECOND));
+        assertEquals(0, cache.getHits());
+
+        assertEquals(-1, player.winningMove(board, Board.SECOND));
+        assertEquals(-1, player.blockingMove(board, Board.SECOND));
+        assertEquals(-1, player.threatMove(board, Board.SECOND));
+        assertEquals(3, cache.getHits());
+    }
+
+    @Test
+    public void fullBucketEvictsTheLeastRecentlyUsedSlot() {
+        PositionCache cache = new PositionCache(2);
+        MnkBoard board = new MnkBoard(7, 7, 5);
+        for (int engine = 0; engine < 3; engine++) {
+            cache.put(board, Board.FIRST, engine, engine + 10);
+        }
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        assertEquals(12, cache.get(board, Board.FIRST, 2));
+    }
+}
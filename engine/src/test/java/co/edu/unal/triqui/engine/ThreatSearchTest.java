@@ -0,0 +1,93 @@
+package co.edu.unal.triqui.engine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks every win the threat search reports against an exhaustive
+ * search: after the reported move the defender must lose whatever it plays.
+ */
+public class ThreatSearchTest {
+    private EndgameSolver solver;
+    private ThreatSearch search;
+
+    @Before
+    public void createSearches() {
+        solver = new EndgameSolver(1);
+        search = new ThreatSearch(ThreatSearch.DEFAULT_MAX_THREATS, 20000);
+    }
+
+    @After
+    public void shutdownSolver() {
+        solver.shutdown();
+    }
+
+    @Test
+    public void winsOnFourByFourHoldAgainstPlainNegamax() {
+        Random random = new Random(5);
+        int wins = 0;
+        for (int game = 0; game < 2000; game++) {
+            int[] toMove = new int[1];
+            MnkBoard board = EndgameSolverTest.randomPosition(random, 4, 4, 3, 4 + random.nextInt(5), toMove);
+            if (board == null) {
+                continue;
+            }
+            int player = toMove[0];
+            int move = search.findWin(board, player);
+            if (move < 0) {
+                continue;
+            }
+            int status = board.play(move, player);
+            if (status == Board.UNFINISHED) {
+                assertEquals(Arrays.toString(board.getCells()),
+                        EndgameSolver.LOSS, EndgameSolverTest.negamax(board, Board.opponent(player)));
+                wins++;
+            } else {
+                assertEquals(Board.WON, status);
+            }
+            board.undo(move);
+        }
+        assertTrue("too few wins to mean anything: " + wins, wins > 100);
+    }
+
+    @Test
+    public void winsOnFiveByFiveHoldAgainstTheSolver() {
+        Random random = new Random(7);
+        int wins = 0;
+        for (int game = 0; game < 1500; game++) {
+            int[] toMove = new int[1];
+            MnkBoard board = EndgameSolverTest.randomPosition(random, 5, 5, 4, 8 + random.nextInt(6), toMove);
+            if (board == null) {
+                continue;
+            }
+            int player = toMove[0];
+            int move = search.findWin(board, player);
+            if (move < 0) {
+                continue;
+            }
+            int status = board.play(move, player);
+            if (status == Board.UNFINISHED) {
+                EndgameSolver.Result result = solver.solve(board, Board.opponent(player), Long.MAX_VALUE);
+                assertTrue(result.complete);
+                assertEquals(Arrays.toString(board.getCells()), EndgameSolver.LOSS, result.value);
+                wins++;
+            } else {
+                assertEquals(Board.WON, status);
+            }
+            board.undo(move);
+        }
+        assertTrue("too few wins to mean anything: " + wins, wins > 300);
+    }
+
+    @Test
+    public void noWinOnTheEmptyBoard() {
+        assertEquals(-1, search.findWin(new MnkBoard(15, 15, 5), Board.FIRST));
+    }
+}
@@ -0,0 +1,105 @@
+package co.edu.unal.triqui.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plays and takes back random moves and checks the tracker's incremental
+ * counts against a tracker rebuilt from the board after every step.
+ */
+public class ThreatTrackerTest {
+
+    @Test
+    public void incrementalCountsMatchARebuildAfterRandomPlayAndUndo() {
+        Random random = new Random(7);
+        for (int game = 0; game < 200; game++) {
+            int width = 5 + random.nextInt(6);
+            int height = 5 + random.nextInt(6);
+            int winLength = 3 + random.nextInt(3);
+            MnkBoard board = new MnkBoard(width, height, winLength);
+            ThreatTracker tracker = new ThreatTracker(width, height, winLength);
+            List<Integer> played = new ArrayList<>();
+            int player = Board.FIRST;
+
+            for (int step = 0; step < 2 * board.getCellCount(); step++) {
+                if (!played.isEmpty() && random.nextInt(4) == 0) {
+                    int cell = played.remove(played.size() - 1);
+                    board.undo(cell);
+                    tracker.undo(cell);
+                    player = Board.opponent(player);
+                } else {
+                    if (board.getMoveCount() == board.getCellCount()) {
+                        break;
+                    }
+                    int cell;
+                    do {
+                        cell = random.nextInt(board.getCellCount());
+                    } while (!board.isFree(cell));
+                    // Una jugada ganadora termina la partida: se prueba otra
+                    if (board.wouldWin(cell, player)) {
+                        continue;
+                    }
+                    board.play(cell, player);
+                    tracker.play(cell, player);
+                    played.add(cell);
+                    player = Board.opponent(player);
+                }
+                assertSameCounts(board, new ThreatTracker(board), tracker);
+            }
+        }
+    }
+
+    @Test
+    public void undoingEveryMoveGivesBackTheEmptyBoard() {
+        Random random = new Random(11);
+        ThreatTracker empty = new ThreatTracker(15, 15, 5);
+        ThreatTracker tracker = new ThreatTracker(15, 15, 5);
+        MnkBoard board = new MnkBoard(15, 15, 5);
+        List<Integer> played = new ArrayList<>();
+        int player = Board.FIRST;
+        while (played.size() < 60) {
+            int cell = random.nextInt(board.getCellCount());
+            if (!board.isFree(cell) || board.wouldWin(cell, player)) {
+                continue;
+            }
+            board.play(cell, player);
+            tracker.play(cell, player);
+            played.add(cell);
+            player = Board.opponent(player);
+        }
+        for (int i = played.size() - 1; i >= 0; i--) {
+            board.undo(played.get(i));
+            tracker.undo(played.get(i));
+        }
+        assertSameCounts(board, empty, tracker);
+    }
+
+    private static void assertSameCounts(MnkBoard board, ThreatTracker expected, ThreatTracker actual) {
+        assertEquals(expected.getMoveCount(), actual.getMoveCount());
+        assertEquals(expected.getHash(), actual.getHash());
+        for (int player = Board.FIRST; player <= Board.SECOND; player++) {
+            for (int stones = 0; stones <= board.getWinLength(); stones++) {
+                assertEquals(expected.getLines(player, stones), actual.getLines(player, stones));
+            }
+            assertEquals(expected.getFours(player), actual.getFours(player));
+            assertEquals(expected.getBrokenFours(player), actual.getBrokenFours(player));
+            assertEquals(expected.getOpenThrees(player), actual.getOpenThrees(player));
+            assertEquals(expected.getOpenFours(player), actual.getOpenFours(player));
+
+            int winningCells = 0;
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                if (board.isFree(cell) && board.wouldWin(cell, player)) {
+                    winningCells++;
+                    assertTrue(actual.isWinningCell(cell, player));
+                }
+            }
+            assertEquals(winningCells, actual.getWinningCellCount(player));
+        }
+    }
+}
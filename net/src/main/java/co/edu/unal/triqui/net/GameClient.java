@@ -0,0 +1,190 @@
+package co.edu.unal.triqui.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Connection to a {@link GameServer}. Connecting and sending run on a
+ * background thread, so every method can be called from a UI thread;
+ * frames from the server are read on a second thread and delivered to the
+ * {@link Listener} there, in order.
+ */
+public final class GameClient implements Closeable {
+    public interface Listener {
+        /** A match started; {@code seat} is {@code Board.FIRST} or {@code Board.SECOND}. */
+        void onMatchStarted(int seat, int width, int height, int winLength);
+
+        void onOpponentMove(int cell);
+
+        /** The server refused the last JOIN or MOVE; see the reasons in {@link Protocol}. */
+        void onRejected(int reason);
+
+        void onOpponentLeft();
+
+        /** The connection failed or was closed by the server; not called after {@link #close()}. */
+        void onDisconnected(IOException cause);
+    }
+
+    private final Listener listener;
+    private final ExecutorService sender;
+    private volatile SocketChannel channel;
+    private volatile boolean closed;
+
+    public GameClient(Listener listener) {
+        this.listener = listener;
+        sender = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "triqui-net-send");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /** Connects in the background and starts reading; sends queued meanwhile go out once connected. */
+    public void connect(final String host, final int port) {
+        execute(new Runnable() {
+            public void run() {
+                try {
+                    SocketChannel opened = SocketChannel.open(new InetSocketAddress(host, port));
+                    opened.socket().setTcpNoDelay(true);
+                    channel = opened;
+                    if (closed) {
+                        opened.close();
+                        return;
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                    return;
+                }
+
+                Thread reader = new Thread(new Runnable() {
+                    public void run() {
+                        readLoop();
+                    }
+                }, "triqui-net-read");
+                reader.setDaemon(true);
+                reader.start();
+            }
+        });
+    }
+
+    /** Asks for an opponent on a board of this size, leaving the current match if any. */
+    public void join(int width, int height, int winLength) {
+        ByteBuffer frame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putJoin(frame, width, height, winLength);
+        send(frame);
+    }
+
+    public void sendMove(int cell) {
+        ByteBuffer frame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putMove(frame, cell);
+        send(frame);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        sender.shutdownNow();
+        SocketChannel current = channel;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void send(final ByteBuffer frame) {
+        frame.flip();
+        execute(new Runnable() {
+            public void run() {
+                SocketChannel current = channel;
+                if (current == null) {
+                    return;
+                }
+                try {
+                    while (frame.hasRemaining()) {
+                        current.write(frame);
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        });
+    }
+
+    private void execute(Runnable task) {
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Cerrado: lo que quede por enviar ya no importa
+        }
+    }
+
+    private void readLoop() {
+        ByteBuffer input = ByteBuffer.allocate(256);
+        try {
+            while (!closed) {
+                if (channel.read(input) < 0) {
+                    throw new IOException("Connection closed by the server");
+                }
+                input.flip();
+                while (input.hasRemaining()) {
+                    byte type = input.get(input.position());
+                    int length = Protocol.payloadLength(type);
+                    if (length < 0) {
+                        throw new IOException("Unknown frame type " + type);
+                    }
+                    if (input.remaining() < 1 + length) {
+                        break;
+                    }
+                    input.get();
+                    dispatch(type, input);
+                }
+                input.compact();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void dispatch(byte type, ByteBuffer input) throws IOException {
+        switch (type) {
+            case Protocol.START:
+                listener.onMatchStarted(Protocol.getUnsigned(input), Protocol.getUnsigned(input),
+                        Protocol.getUnsigned(input), Protocol.getUnsigned(input));
+                break;
+            case Protocol.MOVE:
+                listener.onOpponentMove(Protocol.getUnsignedShort(input));
+                break;
+            case Protocol.REJECTED:
+                listener.onRejected(Protocol.getUnsigned(input));
+                break;
+            case Protocol.LEFT:
+                listener.onOpponentLeft();
+                break;
+            default:
+                throw new IOException("Unexpected frame type " + type);
+        }
+    }
+
+    private void fail(IOException cause) {
+        // Lector y emisor pueden fallar a la vez; solo se avisa una vez
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        close();
+        listener.onDisconnected(cause);
+    }
+}
@@ -0,0 +1,365 @@
+package co.edu.unal.triqui.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import co.edu.unal.triqui.engine.Board;
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/**
+ * Two-player game server on a single thread: one selector multiplexes every
+ * connection, so one small process can host many tables at once instead of
+ * a thread per player. Players are paired by board size in arrival order;
+ * the server keeps the board of each match, checks turns and moves, and
+ * relays each valid move to the opponent.
+ *
+ * <p>{@link #run()} is the selector loop; {@link #close()} can be called
+ * from any thread to stop it.
+ */
+public final class GameServer implements Runnable, Closeable {
+    /* Un cliente que deja de leer se desconecta en vez de acumular salida sin limite */
+    private static final int OUTPUT_CAPACITY = 4096;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    /* Jugador esperando rival, por tamaño de tablero; solo en el hilo del selector */
+    private final Map<Integer, Connection> waiting = new HashMap<>();
+
+    private volatile boolean closed;
+    private volatile int connections;
+    private volatile int matches;
+
+    public GameServer(int port) throws IOException {
+        this(new InetSocketAddress(port));
+    }
+
+    public GameServer(InetSocketAddress address) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.configureBlocking(false);
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(address);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    /** Port the server is listening on, useful after binding to port 0. */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getConnectionCount() {
+        return connections;
+    }
+
+    /** Matches in progress. */
+    public int getMatchCount() {
+        return matches;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    } catch (IOException e) {
+                        disconnect(connection);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // El selector fallo: no hay forma de seguir atendiendo
+        } finally {
+            closeAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    private void accept() {
+        SocketChannel channel;
+        try {
+            channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections++;
+        } catch (IOException e) {
+            // Conexion perdida antes de aceptarla; el resto sigue
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.input) < 0) {
+            disconnect(connection);
+            return;
+        }
+
+        ByteBuffer input = connection.input;
+        input.flip();
+        while (input.hasRemaining() && !connection.closed) {
+            byte type = input.get(input.position());
+            int length = Protocol.payloadLength(type);
+            if (length < 0) {
+                disconnect(connection);
+                return;
+            }
+            if (input.remaining() < 1 + length) {
+                break;
+            }
+            input.get();
+            handle(connection, type, input);
+        }
+        input.compact();
+    }
+
+    private void handle(Connection connection, byte type, ByteBuffer input) throws IOException {
+        switch (type) {
+            case Protocol.JOIN:
+                join(connection, Protocol.getUnsigned(input), Protocol.getUnsigned(input),
+                        Protocol.getUnsigned(input));
+                break;
+            case Protocol.MOVE:
+                move(connection, Protocol.getUnsignedShort(input));
+                break;
+            default:
+                // Los demas tipos solo los envia el servidor
+                disconnect(connection);
+                break;
+        }
+    }
+
+    private void join(Connection connection, int width, int height, int winLength) throws IOException {
+        leave(connection);
+        if (width > Protocol.MAX_SIDE || height > Protocol.MAX_SIDE
+                || newBoard(width, height, winLength) == null) {
+            reject(connection, Protocol.BAD_BOARD);
+            return;
+        }
+
+        int size = width << 16 | height << 8 | winLength;
+        Connection opponent = waiting.remove(size);
+        if (opponent == null) {
+            waiting.put(size, connection);
+            connection.waitingFor = size;
+            return;
+        }
+
+        opponent.waitingFor = -1;
+        Match match = new Match(newBoard(width, height, winLength), opponent, connection);
+        opponent.match = match;
+        opponent.seat = Board.FIRST;
+        connection.match = match;
+        connection.seat = Board.SECOND;
+        matches++;
+
+        Protocol.putStart(output(connection), Board.SECOND, width, height, winLength);
+        flush(connection);
+        try {
+            Protocol.putStart(output(opponent), Board.FIRST, width, height, winLength);
+            flush(opponent);
+        } catch (IOException e) {
+            disconnect(opponent);
+        }
+    }
+
+    private void move(Connection connection, int cell) throws IOException {
+        Match match = connection.match;
+        if (match == null) {
+            reject(connection, Protocol.BAD_MOVE);
+            return;
+        }
+        if (match.turn != connection.seat) {
+            reject(connection, Protocol.NOT_YOUR_TURN);
+            return;
+        }
+        MnkBoard board = match.board;
+        if (cell >= board.getCellCount() || !board.isFree(cell)) {
+            reject(connection, Protocol.BAD_MOVE);
+            return;
+        }
+
+        int status = board.play(cell, connection.seat);
+        match.turn = Board.opponent(connection.seat);
+        Connection opponent = match.players[match.turn];
+        if (status != Board.UNFINISHED) {
+            // Partida terminada: ambos quedan libres para unirse a otra
+            endMatch(match);
+        }
+        try {
+            Protocol.putMove(output(opponent), cell);
+            flush(opponent);
+        } catch (IOException e) {
+            disconnect(opponent);
+        }
+    }
+
+    private void reject(Connection connection, int reason) throws IOException {
+        Protocol.putRejected(output(connection), reason);
+        flush(connection);
+    }
+
+    /** Takes {@code connection} out of the queue or its match, telling the opponent. */
+    private void leave(Connection connection) {
+        if (connection.waitingFor >= 0) {
+            waiting.remove(connection.waitingFor);
+            connection.waitingFor = -1;
+        }
+
+        Match match = connection.match;
+        if (match == null) {
+            return;
+        }
+        endMatch(match);
+        Connection opponent = match.players[Board.opponent(connection.seat)];
+        if (!opponent.closed) {
+            try {
+                Protocol.putLeft(output(opponent));
+                flush(opponent);
+            } catch (IOException e) {
+                disconnect(opponent);
+            }
+        }
+    }
+
+    private void endMatch(Match match) {
+        match.players[Board.FIRST].match = null;
+        match.players[Board.SECOND].match = null;
+        matches--;
+    }
+
+    private void disconnect(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        connections--;
+        leave(connection);
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private ByteBuffer output(Connection connection) throws IOException {
+        if (connection.output.remaining() < Protocol.MAX_FRAME) {
+            throw new IOException("Client is not reading");
+        }
+        return connection.output;
+    }
+
+    /** Writes what the socket takes now and waits for OP_WRITE for the rest. */
+    private void flush(Connection connection) throws IOException {
+        ByteBuffer output = connection.output;
+        output.flip();
+        connection.channel.write(output);
+        boolean pending = output.hasRemaining();
+        output.compact();
+        connection.key.interestOps(pending
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ);
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+        waiting.clear();
+        connections = 0;
+        matches = 0;
+    }
+
+    private static MnkBoard newBoard(int width, int height, int winLength) {
+        try {
+            return new MnkBoard(width, height, winLength);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(256);
+        final ByteBuffer output = ByteBuffer.allocate(OUTPUT_CAPACITY);
+        SelectionKey key;
+        Match match;
+        int seat;
+        int waitingFor = -1;
+        boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static final class Match {
+        final MnkBoard board;
+        /* Indexado por jugador: players[Board.FIRST], players[Board.SECOND] */
+        final Connection[] players = new Connection[3];
+        int turn = Board.FIRST;
+
+        Match(MnkBoard board, Connection first, Connection second) {
+            this.board = board;
+            players[Board.FIRST] = first;
+            players[Board.SECOND] = second;
+        }
+    }
+
+    /** Runs a server on the port given as the only argument, or {@link Protocol#DEFAULT_PORT}. */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Protocol.DEFAULT_PORT;
+        GameServer server = new GameServer(port);
+        System.out.println("Servidor de triqui en el puerto " + server.getPort());
+        server.run();
+    }
+}
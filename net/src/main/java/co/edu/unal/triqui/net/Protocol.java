@@ -0,0 +1,93 @@
+package co.edu.unal.triqui.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary frames exchanged between {@link GameClient} and {@link GameServer}.
+ * A frame is a type byte followed by a payload whose length is fixed by the
+ * type, so there is no length prefix and a move takes three bytes.
+ *
+ * <pre>
+ *   JOIN      c→s  width, height, winLength (1 byte each)
+ *   START     s→c  seat, width, height, winLength (1 byte each)
+ *   MOVE      c↔s  cell (2 bytes)
+ *   LEFT      s→c  -
+ *   REJECTED  s→c  reason (1 byte)
+ * </pre>
+ *
+ * <p>The first player to join a board size waits for the second one; the
+ * server then sends START to both, with seat {@code Board.FIRST} or
+ * {@code Board.SECOND}. After a game ends either client can JOIN again on
+ * the same connection.
+ */
+public final class Protocol {
+    public static final int DEFAULT_PORT = 7777;
+
+    public static final byte JOIN = 1;
+    public static final byte START = 2;
+    public static final byte MOVE = 3;
+    public static final byte LEFT = 4;
+    public static final byte REJECTED = 5;
+
+    /* Motivos de REJECTED */
+    public static final int BAD_BOARD = 1;
+    public static final int NOT_YOUR_TURN = 2;
+    public static final int BAD_MOVE = 3;
+
+    /* Lado maximo de un tablero; acota la memoria que un cliente puede pedir */
+    public static final int MAX_SIDE = 32;
+
+    /** Longest frame, type byte included. */
+    public static final int MAX_FRAME = 5;
+
+    private Protocol() {
+    }
+
+    /** Payload length of a frame of the given type, or -1 if the type is unknown. */
+    public static int payloadLength(byte type) {
+        switch (type) {
+            case JOIN:
+                return 3;
+            case START:
+                return 4;
+            case MOVE:
+                return 2;
+            case LEFT:
+                return 0;
+            case REJECTED:
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    public static void putJoin(ByteBuffer out, int width, int height, int winLength) {
+        out.put(JOIN).put((byte) width).put((byte) height).put((byte) winLength);
+    }
+
+    public static void putStart(ByteBuffer out, int seat, int width, int height, int winLength) {
+        out.put(START).put((byte) seat).put((byte) width).put((byte) height).put((byte) winLength);
+    }
+
+    public static void putMove(ByteBuffer out, int cell) {
+        out.put(MOVE).putShort((short) cell);
+    }
+
+    public static void putLeft(ByteBuffer out) {
+        out.put(LEFT);
+    }
+
+    public static void putRejected(ByteBuffer out, int reason) {
+        out.put(REJECTED).put((byte) reason);
+    }
+
+    /** Unsigned byte at the buffer's position. */
+    static int getUnsigned(ByteBuffer in) {
+        return in.get() & 0xFF;
+    }
+
+    /** Unsigned short at the buffer's position. */
+    static int getUnsignedShort(ByteBuffer in) {
+        return in.getShort() & 0xFFFF;
+    }
+}
@@ -0,0 +1,171 @@
+package co.edu.unal.triqui.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.Board;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Plays games through a real server over the loopback interface.
+ */
+public class GameServerTest {
+    private GameServer server;
+    private Thread serverThread;
+    private final List<GameClient> clients = new ArrayList<>();
+
+    @Before
+    public void startServer() throws IOException {
+        server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        serverThread = new Thread(server, "test-server");
+        serverThread.start();
+    }
+
+    @After
+    public void stopServer() throws InterruptedException {
+        for (GameClient client : clients) {
+            client.close();
+        }
+        server.close();
+        serverThread.join(5000);
+    }
+
+    @Test
+    public void relaysMovesAndChecksTurns() throws Exception {
+        Events a = new Events();
+        Events b = new Events();
+        GameClient clientA = connect(a);
+        GameClient clientB = connect(b);
+        boolean aFirst = pair(clientA, a, clientB, b, 3, 3, 3);
+        GameClient x = aFirst ? clientA : clientB;
+        GameClient o = aFirst ? clientB : clientA;
+        Events first = aFirst ? a : b;
+        Events second = aFirst ? b : a;
+
+        o.sendMove(4);
+        assertEquals("rejected " + Protocol.NOT_YOUR_TURN, second.next());
+
+        // X gana por la columna izquierda
+        int[] moves = {0, 1, 3, 2, 6};
+        for (int i = 0; i < moves.length; i++) {
+            boolean firstMoves = i % 2 == 0;
+            (firstMoves ? x : o).sendMove(moves[i]);
+            assertEquals("move " + moves[i], (firstMoves ? second : first).next());
+        }
+
+        // Terminada la partida, ya no hay a quien enviar jugadas
+        o.sendMove(8);
+        assertEquals("rejected " + Protocol.BAD_MOVE, second.next());
+    }
+
+    @Test
+    public void tellsTheOpponentWhenAPlayerLeaves() throws Exception {
+        Events a = new Events();
+        Events b = new Events();
+        GameClient clientA = connect(a);
+        GameClient clientB = connect(b);
+        pair(clientA, a, clientB, b, 7, 7, 5);
+
+        clientA.close();
+        assertEquals("left", b.next());
+        assertEquals(0, server.getMatchCount());
+    }
+
+    @Test
+    public void rejectsInvalidBoards() throws Exception {
+        Events events = new Events();
+        GameClient client = connect(events);
+        client.join(3, 3, 4);
+        assertEquals("rejected " + Protocol.BAD_BOARD, events.next());
+        client.join(Protocol.MAX_SIDE + 1, 3, 3);
+        assertEquals("rejected " + Protocol.BAD_BOARD, events.next());
+    }
+
+    @Test
+    public void hostsManyMatchesAtOnce() throws Exception {
+        int tables = 50;
+        GameClient[] movers = new GameClient[tables];
+        Events[] waiters = new Events[tables];
+        for (int table = 0; table < tables; table++) {
+            Events a = new Events();
+            Events b = new Events();
+            GameClient clientA = connect(a);
+            GameClient clientB = connect(b);
+            boolean aFirst = pair(clientA, a, clientB, b, 15, 15, 5);
+            movers[table] = aFirst ? clientA : clientB;
+            waiters[table] = aFirst ? b : a;
+        }
+        assertEquals(tables, server.getMatchCount());
+
+        for (int table = 0; table < tables; table++) {
+            movers[table].sendMove(table);
+        }
+        for (int table = 0; table < tables; table++) {
+            assertEquals("move " + table, waiters[table].next());
+        }
+    }
+
+    /**
+     * Joins both clients to the same board and returns true if {@code a}
+     * got the first seat: the order between two connections is not fixed.
+     */
+    private static boolean pair(GameClient a, Events aEvents, GameClient b, Events bEvents,
+                                int width, int height, int winLength) throws InterruptedException {
+        a.join(width, height, winLength);
+        b.join(width, height, winLength);
+        String size = " " + width + "x" + height + "x" + winLength;
+        boolean aFirst = aEvents.next().equals("start " + Board.FIRST + size);
+        assertEquals("start " + (aFirst ? Board.SECOND : Board.FIRST) + size, bEvents.next());
+        return aFirst;
+    }
+
+    private GameClient connect(Events events) {
+        GameClient client = new GameClient(events);
+        client.connect(InetAddress.getLoopbackAddress().getHostAddress(), server.getPort());
+        clients.add(client);
+        return client;
+    }
+
+    /** Records what a client hears as short strings, in order. */
+    private static final class Events implements GameClient.Listener {
+        private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+        String next() throws InterruptedException {
+            String event = queue.poll(5, TimeUnit.SECONDS);
+            assertNotNull("No event from the server", event);
+            return event;
+        }
+
+        public void onMatchStarted(int seat, int width, int height, int winLength) {
+            queue.add("start " + seat + " " + width + "x" + height + "x" + winLength);
+        }
+
+        public void onOpponentMove(int cell) {
+            queue.add("move " + cell);
+        }
+
+        public void onRejected(int reason) {
+            queue.add("rejected " + reason);
+        }
+
+        public void onOpponentLeft() {
+            queue.add("left");
+        }
+
+        public void onDisconnected(IOException cause) {
+            queue.add("disconnected");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package co.edu.unal.triqui.selfplay;
+
+import co.edu.unal.triqui.engine.LatencyHistogram;
+
+/** Results of a batch of games between two strategies, A and B. */
+final class MatchStats {
+    long games;
+    long winsA;
+    long winsB;
+    long draws;
+    long moves;
+    final LatencyHistogram latencyA = new LatencyHistogram();
+    final LatencyHistogram latencyB = new LatencyHistogram();
+
+    MatchStats merge(MatchStats other) {
+        games += other.games;
+        winsA += other.winsA;
+        winsB += other.winsB;
+        draws += other.draws;
+        moves += other.moves;
+        latencyA.merge(other.latencyA);
+        latencyB.merge(other.latencyB);
+        return this;
+    }
+}
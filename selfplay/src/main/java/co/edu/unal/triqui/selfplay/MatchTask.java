@@ -0,0 +1,80 @@
+package co.edu.unal.triqui.selfplay;
+
+import java.util.concurrent.RecursiveTask;
+
+import co.edu.unal.triqui.engine.Board;
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/**
+ * Plays games {@code [from, to)} of a match, splitting the range in halves
+ * until it is small enough to run on one fork-join worker. A plays first
+ * in even-numbered games and second in odd ones.
+ */
+final class MatchTask extends RecursiveTask<MatchStats> {
+    private static final int GAMES_PER_LEAF = 256;
+
+    private final String strategyA;
+    private final String strategyB;
+    private final int width;
+    private final int height;
+    private final int winLength;
+    private final long from;
+    private final long to;
+
+    MatchTask(String strategyA, String strategyB, int width, int height, int winLength, long from, long to) {
+        this.strategyA = strategyA;
+        this.strategyB = strategyB;
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected MatchStats compute() {
+        if (to - from > GAMES_PER_LEAF) {
+            long middle = (from + to) >>> 1;
+            MatchTask left = new MatchTask(strategyA, strategyB, width, height, winLength, from, middle);
+            MatchTask right = new MatchTask(strategyA, strategyB, width, height, winLength, middle, to);
+            left.fork();
+            MatchStats stats = right.compute();
+            return stats.merge(left.join());
+        }
+
+        MatchStats stats = new MatchStats();
+        Strategy a = Strategies.forCurrentThread(strategyA);
+        Strategy b = Strategies.forCurrentThread(strategyB);
+        MnkBoard board = new MnkBoard(width, height, winLength);
+
+        for (long game = from; game < to; game++) {
+            board.clear();
+            int playerA = game % 2 == 0 ? Board.FIRST : Board.SECOND;
+            int player = Board.FIRST;
+            int status = Board.UNFINISHED;
+
+            while (status == Board.UNFINISHED) {
+                boolean turnA = player == playerA;
+                long start = System.nanoTime();
+                int cell = turnA ? a.chooseMove(board, player) : b.chooseMove(board, player);
+                long elapsed = System.nanoTime() - start;
+                (turnA ? stats.latencyA : stats.latencyB).record(elapsed);
+
+                status = board.play(cell, player);
+                stats.moves++;
+                if (status == Board.WON) {
+                    if (turnA) {
+                        stats.winsA++;
+                    } else {
+                        stats.winsB++;
+                    }
+                } else if (status == Board.DRAW_GAME) {
+                    stats.draws++;
+                }
+                player = Board.opponent(player);
+            }
+            stats.games++;
+        }
+        return stats;
+    }
+}
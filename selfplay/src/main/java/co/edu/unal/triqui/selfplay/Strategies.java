@@ -0,0 +1,127 @@
+package co.edu.unal.triqui.selfplay;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import co.edu.unal.triqui.engine.ComputerPlayer;
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.EndgameSolver;
+import co.edu.unal.triqui.engine.MctsSearch;
+import co.edu.unal.triqui.engine.MnkBoard;
+import co.edu.unal.triqui.engine.PositionCache;
+import co.edu.unal.triqui.engine.SolvedTable;
+
+/**
+ * Registry of the strategies the runner knows by name. Engines keep search
+ * state that is not thread-safe, so each fork-join worker gets its own
+ * instances, reused across all the games it plays. Each worker also gets
+ * its own position cache instead of the shared one, whose lock would
+ * serialize the workers.
+ */
+final class Strategies {
+    static final String MCTS = "Mcts";
+
+    /* "Easy" es la jugada aleatoria de getRandomMove() */
+    static final List<String> NAMES = new ArrayList<>();
+
+    /* Las que se juegan si no se indica --strategies; MCTS es lento a millones de partidas */
+    static final List<String> DEFAULT_NAMES = new ArrayList<>();
+
+    static {
+        for (DifficultyLevel level : DifficultyLevel.values()) {
+            NAMES.add(level.name());
+        }
+        DEFAULT_NAMES.addAll(NAMES);
+        NAMES.add(MCTS);
+    }
+
+    private static final ThreadLocal<Map<String, Strategy>> PER_THREAD =
+            ThreadLocal.withInitial(HashMap::new);
+
+    /* Un cache por hilo, para todas sus estrategias: la clave no depende del nivel */
+    private static final int WORKER_CACHE_ENTRIES = 1 << 14;
+    private static final List<PositionCache> CACHES = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<PositionCache> CACHE = ThreadLocal.withInitial(() -> {
+        PositionCache cache = new PositionCache(WORKER_CACHE_ENTRIES);
+        CACHES.add(cache);
+        return cache;
+    });
+
+    private static volatile SolvedTable solvedTable;
+    private static volatile long mctsBudgetMillis = 10;
+
+    private Strategies() {
+    }
+
+    static void setSolvedTable(SolvedTable table) {
+        solvedTable = table;
+    }
+
+    static void setMctsBudget(long millis) {
+        mctsBudgetMillis = millis;
+    }
+
+    static Strategy forCurrentThread(String name) {
+        return PER_THREAD.get().computeIfAbsent(name, Strategies::create);
+    }
+
+    private static Strategy create(String name) {
+        Random random = new Random(Thread.currentThread().getId() * 31 + name.hashCode());
+        if (MCTS.equals(name)) {
+            return mctsStrategy(random);
+        }
+        for (DifficultyLevel level : DifficultyLevel.values()) {
+            if (level.name().equals(name)) {
+                return levelStrategy(level, random);
+            }
+        }
+        throw new IllegalArgumentException("Unknown strategy " + name + ", expected one of " + NAMES);
+    }
+
+    private static Strategy levelStrategy(final DifficultyLevel level, Random random) {
+        final ComputerPlayer player = new ComputerPlayer(random);
+        player.setSolvedTable(solvedTable);
+        // Un solo hilo por busqueda: el paralelismo ya lo pone el fork-join
+        player.setMctsBudget(mctsBudgetMillis, 1);
+        player.setEndgameSolver(EndgameSolver.newShared());
+        player.setPositionCache(CACHE.get());
+        return new Strategy() {
+            @Override
+            public int chooseMove(MnkBoard board, int side) {
+                return player.chooseMove(board, side, level);
+            }
+        };
+    }
+
+    /** Hits, misses and entries summed over the workers' position caches. */
+    static String cacheSummary() {
+        long hits = 0;
+        long misses = 0;
+        long entries = 0;
+        for (PositionCache cache : CACHES) {
+            hits += cache.getHits();
+            misses += cache.getMisses();
+            entries += cache.size();
+        }
+        long lookups = hits + misses;
+        return String.format(Locale.ROOT,
+                "Position caches: %d workers, %d entries, %d hits, %d misses, %.1f%% hit rate",
+                CACHES.size(), entries, hits, misses, lookups == 0 ? 0 : 100.0 * hits / lookups);
+    }
+
+    private static Strategy mctsStrategy(Random random) {
+        final MctsSearch search = new MctsSearch(1, random.nextLong());
+        final long budget = mctsBudgetMillis;
+        return new Strategy() {
+            @Override
+            public int chooseMove(MnkBoard board, int side) {
+                return search.bestMove(board, side, budget);
+            }
+        };
+    }
+}
@@ -0,0 +1,8 @@
+package co.edu.unal.triqui.selfplay;
+
+import co.edu.unal.triqui.engine.MnkBoard;
+
+/** A move generator taking part in the tournament. Instances are used by one thread. */
+interface Strategy {
+    int chooseMove(MnkBoard board, int player);
+}
@@ -0,0 +1,141 @@
+package co.edu.unal.triqui.selfplay;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import co.edu.unal.triqui.engine.LatencyHistogram;
+import co.edu.unal.triqui.engine.SolvedTable;
+import co.edu.unal.triqui.engine.SolvedTableGenerator;
+
+/**
+ * Headless round-robin between the AI strategies, spread over all cores
+ * with a {@link ForkJoinPool}. For every pairing it prints win/draw/loss
+ * rates, games per second and move latency percentiles per side.
+ *
+ * <pre>
+ * Tournament [--games N] [--size width,height,winLength]
+ *            [--strategies Easy,Harder,...,Mcts] [--mcts-millis N] [--threads N]
+ * </pre>
+ */
+public final class Tournament {
+    private static final String SOLVED_TABLE_ASSET = "app/src/main/assets/solved_positions.bin";
+
+    private long games = 10000;
+    private int width = 3;
+    private int height = 3;
+    private int winLength = 3;
+    private List<String> strategies = new ArrayList<>(Strategies.DEFAULT_NAMES);
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public static void main(String[] args) throws IOException {
+        Tournament tournament = new Tournament();
+        tournament.parse(args);
+        Strategies.setSolvedTable(loadSolvedTable());
+        tournament.run();
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--games":
+                    games = Long.parseLong(required(args[i], value));
+                    i++;
+                    break;
+                case "--size":
+                    String[] parts = required(args[i], value).split(",");
+                    width = Integer.parseInt(parts[0]);
+                    height = Integer.parseInt(parts[1]);
+                    winLength = Integer.parseInt(parts[2]);
+                    i++;
+                    break;
+                case "--strategies":
+                    strategies = Arrays.asList(required(args[i], value).split(","));
+                    i++;
+                    break;
+                case "--mcts-millis":
+                    Strategies.setMctsBudget(Long.parseLong(required(args[i], value)));
+                    i++;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(required(args[i], value));
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private static String required(String option, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return value;
+    }
+
+    private static SolvedTable loadSolvedTable() throws IOException {
+        File asset = new File(SOLVED_TABLE_ASSET);
+        if (asset.isFile()) {
+            return SolvedTable.load(new FileInputStream(asset));
+        }
+        return SolvedTable.load(new ByteArrayInputStream(SolvedTableGenerator.generate()));
+    }
+
+    private void run() {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        System.out.printf(Locale.ROOT, "%dx%d, %d in a row, %d games per pairing, %d threads%n",
+                width, height, winLength, games, threads);
+
+        try {
+            for (int i = 0; i < strategies.size(); i++) {
+                for (int j = i + 1; j < strategies.size(); j++) {
+                    String a = strategies.get(i);
+                    String b = strategies.get(j);
+
+                    long start = System.nanoTime();
+                    MatchStats stats = pool.invoke(new MatchTask(a, b, width, height, winLength, 0, games));
+                    double seconds = (System.nanoTime() - start) / 1e9;
+
+                    report(a, b, stats, seconds);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.printf(Locale.ROOT, "%n%s%n", Strategies.cacheSummary());
+    }
+
+    private static void report(String a, String b, MatchStats stats, double seconds) {
+        System.out.printf(Locale.ROOT, "%n%s vs %s: %d games in %.2f s (%.0f games/s, %.1f moves/game)%n",
+                a, b, stats.games, seconds, stats.games / seconds, stats.moves / (double) stats.games);
+        System.out.printf(Locale.ROOT, "  %s wins %.2f%%, draws %.2f%%, %s wins %.2f%%%n",
+                a, percent(stats.winsA, stats.games), percent(stats.draws, stats.games),
+                b, percent(stats.winsB, stats.games));
+        latency(a, stats.latencyA);
+        latency(b, stats.latencyB);
+    }
+
+    private static void latency(String name, LatencyHistogram histogram) {
+        System.out.printf(Locale.ROOT, "  %-10s move latency p50 %s, p90 %s, p99 %s, p99.9 %s, max %s%n",
+                name, micros(histogram.percentile(50)), micros(histogram.percentile(90)),
+                micros(histogram.percentile(99)), micros(histogram.percentile(99.9)),
+                micros(histogram.max()));
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f us", nanos / 1000.0);
+    }
+}
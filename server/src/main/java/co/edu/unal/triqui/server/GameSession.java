@@ -0,0 +1,172 @@
+package co.edu.unal.triqui.server;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import co.edu.unal.triqui.engine.Board;
+import co.edu.unal.triqui.engine.ComputerPlayer;
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.EndgameSolver;
+import co.edu.unal.triqui.engine.MnkBoard;
+import co.edu.unal.triqui.engine.OpeningBook;
+import co.edu.unal.triqui.engine.SolvedTable;
+
+/**
+ * One game between a remote human and the computer: the same board and
+ * {@link ComputerPlayer} the Android {@code GameBoard} drives, without the
+ * view. Requests for a session are handled one at a time; the computer's
+ * search runs on the shared CPU executor while the request thread waits.
+ */
+final class GameSession {
+    static final String UNFINISHED = "unfinished";
+    static final String HUMAN_WON = "human_won";
+    static final String COMPUTER_WON = "computer_won";
+    static final String DRAW = "draw";
+
+    /** The move was refused; the message says why. */
+    static final class MoveException extends Exception {
+        MoveException(String message) {
+            super(message);
+        }
+    }
+
+    final String id;
+    final DifficultyLevel level;
+    final int humanSeat;
+
+    /* Un ReentrantLock y no synchronized: un hilo virtual que espera la IA no fija su portador */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final MnkBoard board;
+    private final ComputerPlayer computer;
+    private int lastComputerMove = -1;
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    GameSession(String id, int width, int height, int winLength, DifficultyLevel level,
+                boolean computerFirst, SolvedTable solvedTable, OpeningBook openingBook,
+                long mctsBudgetMillis, EndgameSolver endgameSolver) {
+        this.id = id;
+        this.level = level;
+        this.humanSeat = computerFirst ? Board.SECOND : Board.FIRST;
+        board = new MnkBoard(width, height, winLength);
+        computer = new ComputerPlayer(new Random());
+        computer.setSolvedTable(solvedTable);
+        computer.setOpeningBook(openingBook);
+        // Un hilo por busqueda: el paralelismo lo pone el ejecutor de CPU
+        computer.setMctsBudget(mctsBudgetMillis, 1);
+        computer.setEndgameSolver(endgameSolver);
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    /** Lets the computer open the game if it plays first. */
+    void start(ExecutorService cpu) throws InterruptedException {
+        lock.lock();
+        try {
+            if (humanSeat == Board.SECOND && board.getMoveCount() == 0) {
+                playComputer(cpu);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Plays the human's {@code cell} and, if the game goes on, the computer's
+     * reply. If the CPU executor is full the move is taken back and the
+     * {@link RejectedExecutionException} passed on.
+     */
+    void play(int cell, ExecutorService cpu) throws InterruptedException, MoveException {
+        lock.lock();
+        try {
+            touch();
+            if (board.status() != Board.UNFINISHED) {
+                throw new MoveException("The game is over");
+            }
+            if (cell < 0 || cell >= board.getCellCount() || !board.isFree(cell)) {
+                throw new MoveException("Cell " + cell + " is not free");
+            }
+            board.play(cell, humanSeat);
+            lastComputerMove = -1;
+            if (board.status() == Board.UNFINISHED) {
+                try {
+                    playComputer(cpu);
+                } catch (RejectedExecutionException | InterruptedException e) {
+                    // Sin respuesta del computador la jugada no cuenta; el cliente puede reintentar
+                    board.undo(cell);
+                    throw e;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void playComputer(ExecutorService cpu) throws InterruptedException {
+        final MnkBoard snapshot = new MnkBoard(board);
+        final int seat = Board.opponent(humanSeat);
+        Future<Integer> reply = cpu.submit(() -> computer.chooseMove(snapshot, seat, level));
+        int cell;
+        try {
+            cell = reply.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Computer move failed", e.getCause());
+        } catch (InterruptedException e) {
+            reply.cancel(true);
+            throw e;
+        }
+        if (cell >= 0) {
+            board.play(cell, seat);
+            lastComputerMove = cell;
+        }
+    }
+
+    void close() {
+        computer.shutdown();
+    }
+
+    String toJson() {
+        lock.lock();
+        try {
+            StringBuilder json = new StringBuilder(64 + 2 * board.getCellCount());
+            json.append("{\"id\":\"").append(id)
+                    .append("\",\"width\":").append(board.getWidth())
+                    .append(",\"height\":").append(board.getHeight())
+                    .append(",\"winLength\":").append(board.getWinLength())
+                    .append(",\"level\":\"").append(level.name())
+                    .append("\",\"humanSeat\":").append(humanSeat)
+                    .append(",\"cells\":[");
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                if (cell > 0) {
+                    json.append(',');
+                }
+                json.append(board.get(cell));
+            }
+            json.append("],\"computerMove\":").append(lastComputerMove)
+                    .append(",\"status\":\"").append(status()).append("\"}");
+            return json.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String status() {
+        switch (board.status()) {
+            case Board.WON:
+                return board.get(board.getWinningLineStart()) == humanSeat ? HUMAN_WON : COMPUTER_WON;
+            case Board.DRAW_GAME:
+                return DRAW;
+            default:
+                return UNFINISHED;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package co.edu.unal.triqui.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.OpeningBook;
+import co.edu.unal.triqui.engine.SolvedTable;
+import co.edu.unal.triqui.engine.SolvedTableGenerator;
+
+/**
+ * HTTP service that plays the app's AI against web or kiosk clients, many
+ * independent sessions at once. Each request runs on its own virtual
+ * thread (Java 21+) and may block freely; searches go to a bounded pool
+ * with one worker per core, so AI load queues up there, or is refused with
+ * 503 when the queue is full, instead of starving request handling.
+ *
+ * <pre>
+ * POST   /sessions?width=3&amp;height=3&amp;winLength=3&amp;level=Expert&amp;computerFirst=false
+ * GET    /sessions/{id}
+ * POST   /sessions/{id}/moves?cell=4
+ * DELETE /sessions/{id}
+ * GET    /metrics
+ *
+ * HeadlessServer [--port N] [--idle-seconds N] [--max-sessions N]
+ *                [--mcts-millis N] [--ai-threads N]
+ * </pre>
+ */
+public final class HeadlessServer {
+    private static final String SOLVED_TABLE_ASSET = "app/src/main/assets/solved_positions.bin";
+    private static final String OPENING_BOOK_ASSET = "app/src/main/assets/opening_book.bin";
+    /* Busquedas en cola por hilo de IA antes de responder 503 */
+    private static final int QUEUE_PER_AI_THREAD = 32;
+    /* Lado maximo de un tablero; acota la memoria y el tiempo por sesion */
+    private static final int MAX_SIDE = 32;
+
+    private int port = 8080;
+    private long idleSeconds = 300;
+    private int maxSessions = 10000;
+    private long mctsMillis = 200;
+    private int aiThreads = Runtime.getRuntime().availableProcessors();
+
+    private final ServerMetrics metrics = new ServerMetrics();
+    private SessionManager sessions;
+    private ThreadPoolExecutor cpu;
+    private boolean virtualThreads;
+
+    public static void main(String[] args) throws IOException {
+        HeadlessServer server = new HeadlessServer();
+        server.parse(args);
+        server.start(loadSolvedTable(), loadOpeningBook());
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(required(args[i], value));
+                    break;
+                case "--idle-seconds":
+                    idleSeconds = Long.parseLong(required(args[i], value));
+                    break;
+                case "--max-sessions":
+                    maxSessions = Integer.parseInt(required(args[i], value));
+                    break;
+                case "--mcts-millis":
+                    mctsMillis = Long.parseLong(required(args[i], value));
+                    break;
+                case "--ai-threads":
+                    aiThreads = Integer.parseInt(required(args[i], value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            i++;
+        }
+    }
+
+    private static String required(String option, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return value;
+    }
+
+    private static SolvedTable loadSolvedTable() throws IOException {
+        File asset = new File(SOLVED_TABLE_ASSET);
+        if (asset.isFile()) {
+            return SolvedTable.load(new FileInputStream(asset));
+        }
+        return SolvedTable.load(new ByteArrayInputStream(SolvedTableGenerator.generate()));
+    }
+
+    /** The mapped book, shared by every session, or null to search from the first move. */
+    private static OpeningBook loadOpeningBook() throws IOException {
+        File asset = new File(OPENING_BOOK_ASSET);
+        return asset.isFile() ? OpeningBook.map(asset) : null;
+    }
+
+    private void start(SolvedTable solvedTable, OpeningBook openingBook) throws IOException {
+        sessions = new SessionManager(solvedTable, openingBook, metrics, idleSeconds, maxSessions, mctsMillis,
+                aiThreads);
+        cpu = new ThreadPoolExecutor(aiThreads, aiThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(aiThreads * QUEUE_PER_AI_THREAD),
+                VirtualThreads.daemonFactory("triqui-ai-"), new ThreadPoolExecutor.AbortPolicy());
+
+        final ScheduledExecutorService evictor =
+                Executors.newSingleThreadScheduledExecutor(VirtualThreads.daemonFactory("triqui-evict-"));
+        long period = Math.max(1, idleSeconds / 4);
+        evictor.scheduleWithFixedDelay(sessions::evictIdle, period, period, TimeUnit.SECONDS);
+
+        virtualThreads = VirtualThreads.isAvailable();
+        final ExecutorService requests = VirtualThreads.newPerTaskExecutor("triqui-request-");
+        final HttpServer http = HttpServer.create(new InetSocketAddress(port), 0);
+        http.setExecutor(requests);
+        http.createContext("/sessions", this::handleSessions);
+        http.createContext("/metrics", this::handleMetrics);
+        http.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            http.stop(1);
+            evictor.shutdownNow();
+            cpu.shutdownNow();
+            requests.shutdownNow();
+            sessions.shutdown();
+        }));
+        System.out.printf("Listening on port %d, %d AI threads, virtual threads %s%n",
+                port, aiThreads, virtualThreads ? "on" : "unavailable (needs Java 21)");
+    }
+
+    private void handleSessions(HttpExchange exchange) throws IOException {
+        try {
+            // /sessions, /sessions/{id} o /sessions/{id}/moves
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            if (path.length == 2 && "POST".equals(method)) {
+                createSession(exchange, query);
+                return;
+            }
+            if (path.length < 3) {
+                send(exchange, 405, error("Use POST /sessions"));
+                return;
+            }
+
+            String id = path[2];
+            GameSession session = sessions.get(id);
+            if (session == null) {
+                send(exchange, 404, error("No session " + id));
+            } else if (path.length == 3 && "GET".equals(method)) {
+                send(exchange, 200, session.toJson());
+            } else if (path.length == 3 && "DELETE".equals(method)) {
+                sessions.remove(id);
+                send(exchange, 204, null);
+            } else if (path.length == 4 && "moves".equals(path[3]) && "POST".equals(method)) {
+                play(exchange, session, query);
+            } else {
+                send(exchange, 405, error("Unsupported request"));
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            metrics.aiRejected();
+            send(exchange, 503, error("The AI is busy, try again"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, error("Shutting down"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createSession(HttpExchange exchange, Map<String, String> query)
+            throws IOException, InterruptedException {
+        int width = intParam(query, "width", 3);
+        int height = intParam(query, "height", width);
+        int winLength = intParam(query, "winLength", Math.min(width, height));
+        if (width > MAX_SIDE || height > MAX_SIDE) {
+            throw new IllegalArgumentException("Boards are at most " + MAX_SIDE + "x" + MAX_SIDE);
+        }
+        DifficultyLevel level = DifficultyLevel.valueOf(param(query, "level", DifficultyLevel.Expert.name()));
+        boolean computerFirst = Boolean.parseBoolean(param(query, "computerFirst", "false"));
+
+        try {
+            GameSession session = sessions.create(width, height, winLength, level, computerFirst, cpu);
+            send(exchange, 201, session.toJson());
+        } catch (SessionManager.FullException e) {
+            send(exchange, 503, error(e.getMessage()));
+        }
+    }
+
+    private void play(HttpExchange exchange, GameSession session, Map<String, String> query)
+            throws IOException, InterruptedException {
+        int cell = intParam(query, "cell", -1);
+        long start = System.nanoTime();
+        try {
+            session.play(cell, cpu);
+            metrics.recordMove(System.nanoTime() - start);
+            send(exchange, 200, session.toJson());
+        } catch (GameSession.MoveException e) {
+            metrics.moveRejected();
+            send(exchange, 409, error(e.getMessage()));
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, metrics.toJson(sessions.size(), cpu.getQueue().size(),
+                    cpu.getActiveCount(), virtualThreads));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static Map<String, String> parseQuery(String raw) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private static String param(Map<String, String> query, String name, String fallback) {
+        String value = query.get(name);
+        return value != null ? value : fallback;
+    }
+
+    /** @throws IllegalArgumentException (as NumberFormatException) if the value is not a number */
+    private static int intParam(Map<String, String> query, String name, int fallback) {
+        String value = query.get(name);
+        return value != null ? Integer.parseInt(value) : fallback;
+    }
+}
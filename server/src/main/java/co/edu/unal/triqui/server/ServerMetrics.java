@@ -0,0 +1,86 @@
+package co.edu.unal.triqui.server;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import co.edu.unal.triqui.engine.LatencyHistogram;
+
+/**
+ * Counters exposed at {@code /metrics}: session churn, the rate of new
+ * sessions over the last few seconds and the latency of each move request,
+ * from the human move to the computer's reply.
+ */
+final class ServerMetrics {
+    /* Segundos que promedia la tasa de sesiones nuevas */
+    private static final int RATE_WINDOW = 10;
+
+    private final AtomicLong sessionsCreated = new AtomicLong();
+    private final AtomicLong sessionsEvicted = new AtomicLong();
+    private final AtomicLong movesRejected = new AtomicLong();
+    private final AtomicLong aiRejected = new AtomicLong();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    /* Anillo por segundo: cuantas sesiones se crearon y en que segundo va cada ranura */
+    private final AtomicLongArray createdPerSecond = new AtomicLongArray(RATE_WINDOW + 1);
+    private final AtomicLongArray slotSecond = new AtomicLongArray(RATE_WINDOW + 1);
+
+    void sessionCreated() {
+        sessionsCreated.incrementAndGet();
+        long second = System.nanoTime() / 1000000000L;
+        int slot = (int) (second % slotSecond.length());
+        long stamped = slotSecond.get(slot);
+        if (stamped != second && slotSecond.compareAndSet(slot, stamped, second)) {
+            // Primera sesion de este segundo en la ranura: se descarta la vuelta anterior
+            createdPerSecond.set(slot, 0);
+        }
+        createdPerSecond.incrementAndGet(slot);
+    }
+
+    void sessionsEvicted(int count) {
+        sessionsEvicted.addAndGet(count);
+    }
+
+    void moveRejected() {
+        movesRejected.incrementAndGet();
+    }
+
+    void aiRejected() {
+        aiRejected.incrementAndGet();
+    }
+
+    void recordMove(long nanos) {
+        moveLatency.record(nanos);
+    }
+
+    /** New sessions per second, averaged over the last complete seconds. */
+    double sessionsPerSecond() {
+        long now = System.nanoTime() / 1000000000L;
+        long created = 0;
+        for (int slot = 0; slot < slotSecond.length(); slot++) {
+            long second = slotSecond.get(slot);
+            // El segundo en curso aun no termina; no cuenta
+            if (second < now && second >= now - RATE_WINDOW) {
+                created += createdPerSecond.get(slot);
+            }
+        }
+        return created / (double) RATE_WINDOW;
+    }
+
+    String toJson(int activeSessions, int aiQueued, int aiActive, boolean virtualThreads) {
+        return String.format(Locale.ROOT,
+                "{\"sessions\":{\"active\":%d,\"created\":%d,\"evicted\":%d,\"perSecond\":%.2f},"
+                        + "\"moves\":{\"count\":%d,\"rejected\":%d,\"p50Micros\":%d,\"p90Micros\":%d,"
+                        + "\"p99Micros\":%d,\"maxMicros\":%d},"
+                        + "\"ai\":{\"queued\":%d,\"active\":%d,\"rejected\":%d},"
+                        + "\"virtualThreads\":%b}",
+                activeSessions, sessionsCreated.get(), sessionsEvicted.get(), sessionsPerSecond(),
+                moveLatency.count(), movesRejected.get(), micros(moveLatency.percentile(50)),
+                micros(moveLatency.percentile(90)), micros(moveLatency.percentile(99)),
+                micros(moveLatency.max()), aiQueued, aiActive, aiRejected.get(), virtualThreads);
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+}
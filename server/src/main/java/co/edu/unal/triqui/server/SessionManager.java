@@ -0,0 +1,129 @@
+package co.edu.unal.triqui.server;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import co.edu.unal.triqui.engine.DifficultyLevel;
+import co.edu.unal.triqui.engine.EndgameSolver;
+import co.edu.unal.triqui.engine.OpeningBook;
+import co.edu.unal.triqui.engine.SolvedTable;
+import co.edu.unal.triqui.engine.TranspositionTable;
+
+/**
+ * Live sessions by id. Sessions untouched for longer than the idle timeout
+ * are dropped by {@link #evictIdle()}, which the server runs periodically,
+ * and the total is capped so abandoned clients cannot exhaust memory.
+ * Every session solves endgames on the same pool and table, so a session
+ * costs its board and search state, not a pool and table of its own.
+ */
+final class SessionManager {
+    /** There are already {@code maxSessions} live sessions. */
+    static final class FullException extends Exception {
+        FullException(int maxSessions) {
+            super("Too many sessions (" + maxSessions + ")");
+        }
+    }
+
+    private final ConcurrentHashMap<String, GameSession> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final SolvedTable solvedTable;
+    private final OpeningBook openingBook;
+    private final ServerMetrics metrics;
+    private final long idleNanos;
+    private final int maxSessions;
+    private final long mctsBudgetMillis;
+    private final ForkJoinPool endgamePool;
+    private final TranspositionTable endgameTable;
+
+    SessionManager(SolvedTable solvedTable, OpeningBook openingBook, ServerMetrics metrics,
+                   long idleSeconds, int maxSessions, long mctsBudgetMillis, int aiThreads) {
+        this.solvedTable = solvedTable;
+        this.openingBook = openingBook;
+        this.metrics = metrics;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        this.maxSessions = maxSessions;
+        this.mctsBudgetMillis = mctsBudgetMillis;
+        endgamePool = new ForkJoinPool(aiThreads);
+        endgameTable = new TranspositionTable(EndgameSolver.DEFAULT_TABLE_ENTRIES);
+    }
+
+    /**
+     * Opens a session and plays the computer's first move if it starts.
+     *
+     * @throws IllegalArgumentException   if the board size is invalid
+     * @throws RejectedExecutionException if the CPU executor has no room for the first move
+     */
+    GameSession create(int width, int height, int winLength, DifficultyLevel level, boolean computerFirst,
+                       ExecutorService cpu) throws FullException, InterruptedException {
+        // Comprobacion aproximada: bajo carga puede pasarse por unas pocas sesiones
+        if (sessions.size() >= maxSessions) {
+            throw new FullException(maxSessions);
+        }
+
+        GameSession session = new GameSession(newId(), width, height, winLength, level,
+                computerFirst, solvedTable, openingBook, mctsBudgetMillis,
+                new EndgameSolver(endgamePool, endgameTable));
+        sessions.put(session.id, session);
+        metrics.sessionCreated();
+        try {
+            session.start(cpu);
+        } catch (RejectedExecutionException | InterruptedException e) {
+            remove(session.id);
+            throw e;
+        }
+        return session;
+    }
+
+    /** The session with this id, marked as used, or null if it does not exist or was evicted. */
+    GameSession get(String id) {
+        GameSession session = sessions.get(id);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    boolean remove(String id) {
+        GameSession session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        session.close();
+        return true;
+    }
+
+    /** Stops the endgame workers; called once the server no longer runs moves. */
+    void shutdown() {
+        endgamePool.shutdownNow();
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    /** Drops the sessions idle for longer than the timeout and returns how many. */
+    int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Iterator<GameSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            GameSession session = it.next();
+            if (now - session.getLastAccessNanos() > idleNanos) {
+                it.remove();
+                session.close();
+                evicted++;
+            }
+        }
+        metrics.sessionsEvicted(evicted);
+        return evicted;
+    }
+
+    private String newId() {
+        // 64 bits al azar: ids no adivinables por otros clientes
+        return Long.toHexString(random.nextLong() | Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,56 @@
+package co.edu.unal.triqui.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor with one virtual thread per task when the JVM has them (Java 21
+ * or later), looked up by reflection because the module is compiled for
+ * Java 8. On older JVMs it falls back to a cached pool of daemon threads,
+ * which behaves the same but costs a platform thread per blocked request.
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    static boolean isAvailable() {
+        return virtualFactory("probe-") != null;
+    }
+
+    static ExecutorService newPerTaskExecutor(String prefix) {
+        ThreadFactory factory = virtualFactory(prefix);
+        if (factory != null) {
+            try {
+                Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) perTask.invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                // Sigue con el respaldo
+            }
+        }
+        return Executors.newCachedThreadPool(daemonFactory(prefix));
+    }
+
+    static ThreadFactory daemonFactory(final String prefix) {
+        final AtomicInteger created = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + created.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /* Thread.ofVirtual().name(prefix, 1).factory(), o null antes de Java 21 */
+    private static ThreadFactory virtualFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}